@@ -0,0 +1,541 @@
+package com.parker.uipractice;
+
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 开关控件基类,测量、触摸和动画由{@link SwitchStateMachine}处理,
+ * 绘制由{@link SwitchRenderer}完成,子类只需配置样式
+ */
+public abstract class BaseSwitchView extends View implements SwitchStateMachine.Callback {
+
+    /**
+     * 绘制器
+     */
+    protected final SwitchRenderer renderer = new SwitchRenderer();
+
+    /**
+     * 状态机
+     */
+    protected final SwitchStateMachine stateMachine = new SwitchStateMachine(this);
+
+    /**
+     * 开关状态变化回调
+     */
+    private OnSwitchChangeListener listener;
+
+    /**
+     * 回调分发器,null表示在触摸流程中同步回调
+     */
+    private SwitchChangeDispatcher dispatcher;
+
+    /**
+     * 性能统计,null表示不统计
+     */
+    private SwitchMetrics metrics;
+
+    /**
+     * 正在处理的触摸事件时间,0表示不在触摸流程中
+     */
+    private long touchEventTime;
+
+    /**
+     * 引起重绘但还没绘制的触摸事件时间,0表示没有
+     */
+    private long pendingTouchTime;
+
+    /**
+     * 当前切换动画第一帧的时间和已绘制帧数
+     */
+    private long animationStartTime;
+    private int animationFrames;
+
+    /**
+     * 待定状态的标志位
+     */
+    private static final int PENDING_NONE = 0;
+    private static final int PENDING_ON = 1;
+    private static final int PENDING_ANIMATE = 2;
+    private static final int PENDING_SET = 4;
+
+    /**
+     * 后台线程提交的最新状态,{@link #PENDING_NONE}表示没有待应用的状态
+     */
+    private final AtomicInteger pendingStatus = new AtomicInteger(PENDING_NONE);
+
+    /**
+     * 在主线程应用最新的待定状态,预先创建避免每次提交都分配
+     */
+    private final Runnable applyPendingStatus = new Runnable() {
+        @Override
+        public void run() {
+            int pending = pendingStatus.getAndSet(PENDING_NONE);
+            if (pending != PENDING_NONE) {
+                setSwitchStatus((pending & PENDING_ON) != 0, (pending & PENDING_ANIMATE) != 0, 0);
+            }
+        }
+    };
+
+    /**
+     * 绑定的状态存储及key,用户切换时自动保存
+     */
+    private SwitchStateStore stateStore;
+    private String stateKey;
+
+    /**
+     * 所在的开关组及组内序号
+     */
+    private SwitchGroup group;
+    private int groupIndex;
+
+    /**
+     * 是否只重绘按钮扫过的区域
+     */
+    private boolean dirtyRegionInvalidation;
+
+    /**
+     * 上一帧绘制时的移动比例,-1表示未绘制
+     */
+    private float drawnRate = -1;
+
+    /**
+     * 待重绘区域
+     */
+    private Rect dirtyRect;
+
+    /**
+     * 计算重绘区域用的临时区域
+     */
+    private Rect thumbRect;
+
+    /**
+     * 上次测量的参数,相同时直接复用测量结果
+     */
+    private int measuredWidthSpec;
+    private int measuredHeightSpec;
+    private int measuredPaddingLeft;
+    private int measuredPaddingTop;
+    private int measuredPaddingRight;
+    private int measuredPaddingBottom;
+    private float measuredDensity;
+
+    /**
+     * 上次测量的结果
+     */
+    private int cachedWidth = -1;
+    private int cachedHeight = -1;
+
+    public BaseSwitchView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        stateMachine.setFlingVelocity(configuration.getScaledMinimumFlingVelocity(),
+                configuration.getScaledMaximumFlingVelocity());
+    }
+
+    /**
+     * 默认宽,单位dp
+     */
+    protected abstract float getDefaultWidth();
+
+    /**
+     * 默认高,单位dp
+     */
+    protected abstract float getDefaultHeight();
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        long start = SwitchTrace.ENABLED ? System.nanoTime() : 0;
+        float density = getResources().getDisplayMetrics().density;
+        if (cachedWidth >= 0 && widthMeasureSpec == measuredWidthSpec && heightMeasureSpec == measuredHeightSpec
+                && getPaddingLeft() == measuredPaddingLeft && getPaddingTop() == measuredPaddingTop
+                && getPaddingRight() == measuredPaddingRight && getPaddingBottom() == measuredPaddingBottom
+                && density == measuredDensity) {
+            //父布局多次测量时参数不变,直接复用上次的尺寸和几何
+            setMeasuredDimension(cachedWidth, cachedHeight);
+            return;
+        }
+        measuredWidthSpec = widthMeasureSpec;
+        measuredHeightSpec = heightMeasureSpec;
+        measuredPaddingLeft = getPaddingLeft();
+        measuredPaddingTop = getPaddingTop();
+        measuredPaddingRight = getPaddingRight();
+        measuredPaddingBottom = getPaddingBottom();
+        measuredDensity = density;
+
+        final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+
+        if (widthMode == MeasureSpec.UNSPECIFIED
+                || widthMode == MeasureSpec.AT_MOST) {
+            widthMeasureSpec = MeasureSpec.makeMeasureSpec(dp2pxInt(getDefaultWidth()), MeasureSpec.EXACTLY);
+        }
+        if (heightMode == MeasureSpec.UNSPECIFIED
+                || heightMode == MeasureSpec.AT_MOST) {
+            heightMeasureSpec = MeasureSpec.makeMeasureSpec(dp2pxInt(getDefaultHeight()), MeasureSpec.EXACTLY);
+        }
+
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        int realWidth = width - getPaddingLeft() - getPaddingRight();
+        int realHeight = height - getPaddingTop() - getPaddingBottom();
+        if (realHeight <= realWidth / 2) {
+            width = realHeight * 2 + getPaddingLeft() + getPaddingRight();
+        } else {
+            height = realWidth / 2 + getPaddingTop() + getPaddingBottom();
+        }
+        renderer.setBounds(getPaddingLeft(), getPaddingTop(), width - getPaddingRight(), height - getPaddingBottom());
+        cachedWidth = width;
+        cachedHeight = height;
+        setMeasuredDimension(width, height);
+        if (SwitchTrace.ENABLED) {
+            SwitchTrace.record(SwitchTrace.EVENT_MEASURE, this, start, System.nanoTime() - start,
+                    stateMachine.getRate(), width << 16 | height);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        SwitchMetrics metrics = this.metrics;
+        long start = SwitchTrace.ENABLED || metrics != null ? System.nanoTime() : 0;
+        int allocations = metrics != null && SwitchMetrics.isAllocationCounting() ? SwitchMetrics.getThreadAllocCount() : 0;
+        drawnRate = stateMachine.getRate();
+        renderer.draw(canvas, drawnRate, stateMachine.isCanSwitch());
+        if (SwitchTrace.ENABLED) {
+            SwitchTrace.record(SwitchTrace.EVENT_DRAW, this, start, System.nanoTime() - start,
+                    stateMachine.getRate(), stateMachine.getSwitchStatus() ? 1 : 0);
+        }
+        if (metrics != null) {
+            recordDrawMetrics(metrics, start, allocations);
+        }
+    }
+
+    private void recordDrawMetrics(SwitchMetrics metrics, long start, int allocations) {
+        metrics.recordDraw(System.nanoTime() - start);
+        if (SwitchMetrics.isAllocationCounting()) {
+            metrics.recordAllocations(SwitchMetrics.getThreadAllocCount() - allocations);
+        }
+        if (pendingTouchTime != 0) {
+            metrics.recordTouchLatency(SystemClock.uptimeMillis() - pendingTouchTime);
+            pendingTouchTime = 0;
+        }
+        if (stateMachine.isAnimating()) {
+            if (animationStartTime == 0) {
+                animationStartTime = start;
+                animationFrames = 0;
+            }
+            animationFrames++;
+        } else if (animationStartTime != 0) {
+            //动画结束后的最后一帧
+            metrics.recordAnimation(start - animationStartTime, animationFrames + 1);
+            animationStartTime = 0;
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        renderer.releaseLayers();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.switchStatus = getSwitchStatus();
+        state.canSwitch = isCanSwitch();
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        setSwitchStatus(savedState.switchStatus);
+        setCanSwitch(savedState.canSwitch);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (SwitchTrace.ENABLED) {
+            SwitchTrace.record(SwitchTrace.EVENT_TOUCH, this, System.nanoTime(), 0,
+                    stateMachine.getRate(), event.getAction());
+        }
+        if (metrics == null) {
+            return stateMachine.onTouchEvent(event, renderer.getThumbTravel());
+        }
+        touchEventTime = event.getEventTime();
+        try {
+            return stateMachine.onTouchEvent(event, renderer.getThumbTravel());
+        } finally {
+            touchEventTime = 0;
+        }
+    }
+
+    @Override
+    public void onRateChanged() {
+        if (touchEventTime != 0 && pendingTouchTime == 0) {
+            pendingTouchTime = touchEventTime;
+        }
+        float rate = stateMachine.getRate();
+        if (!dirtyRegionInvalidation || drawnRate < 0 || renderer.isTrackChanged(drawnRate, rate)) {
+            invalidate();
+            return;
+        }
+        //只重绘上一帧和这一帧按钮区域的并集
+        renderer.getThumbBounds(drawnRate, dirtyRect);
+        renderer.getThumbBounds(rate, thumbRect);
+        dirtyRect.union(thumbRect);
+        invalidate(dirtyRect);
+    }
+
+    @Override
+    public void onSwitchChange(boolean switchStatus) {
+        if (SwitchTrace.ENABLED) {
+            SwitchTrace.record(SwitchTrace.EVENT_STATUS, this, System.nanoTime(), 0,
+                    stateMachine.getRate(), switchStatus ? 1 : 0);
+        }
+        if (stateStore != null) {
+            stateStore.put(stateKey, switchStatus);
+        }
+        if (dispatcher != null) {
+            dispatcher.dispatch(this, listener, switchStatus);
+        } else if (listener != null) {
+            listener.onSwitchChange(switchStatus);
+        }
+        if (group != null) {
+            group.onMemberSwitchChange(groupIndex);
+        }
+    }
+
+    /**
+     * 按控件自身的屏幕密度把dp转成像素,副屏和密度变化后也正确
+     */
+    protected int dp2pxInt(float dp) {
+        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, getResources().getDisplayMetrics());
+    }
+
+    /**
+     * 设置是否切换
+     *
+     * @param canSwitch
+     */
+    public void setCanSwitch(boolean canSwitch) {
+        stateMachine.setCanSwitch(canSwitch);
+    }
+
+    /**
+     * 设置开关的状态
+     *
+     * @param switchStatus 开或者关
+     */
+    public void setSwitchStatus(boolean switchStatus) {
+        stateMachine.setSwitchStatus(switchStatus);
+    }
+
+    /**
+     * 切换开关状态
+     *
+     * @param switchStatus  开或者关
+     * @param isSingleClick 是否点击
+     */
+    public void setSwitchStatus(boolean switchStatus, boolean isSingleClick) {
+        stateMachine.setSwitchStatus(switchStatus, isSingleClick);
+    }
+
+    /**
+     * 切换开关状态,动画可延迟开始
+     *
+     * @param switchStatus 开或者关
+     * @param animate      是否动画
+     * @param startDelay   动画延迟,毫秒
+     */
+    public void setSwitchStatus(boolean switchStatus, boolean animate, int startDelay) {
+        stateMachine.setSwitchStatus(switchStatus, animate, startDelay);
+    }
+
+    /**
+     * 在任意线程设置开关状态。多次调用只保留最后一次,在主线程统一应用一次。
+     * 通过主线程Handler调度而不是View.post,API 24以下未附加到窗口的View在非主线程post会进入
+     * 调用线程的队列,永远不会执行,槽位也就不会再被清空
+     *
+     * @param switchStatus 开或者关
+     * @param animate      是否动画
+     */
+    public void setSwitchStatusAsync(boolean switchStatus, boolean animate) {
+        int pending = PENDING_SET | (switchStatus ? PENDING_ON : 0) | (animate ? PENDING_ANIMATE : 0);
+        if (pendingStatus.getAndSet(pending) == PENDING_NONE) {
+            //槽位原本为空才需要调度,之后的提交只覆盖槽位
+            SwitchMainThread.post(applyPendingStatus);
+        }
+    }
+
+    /**
+     * 获取当前更新的值
+     *
+     * @param startValue
+     * @param endValue
+     * @param duration
+     * @param onAnimUpdateListener
+     */
+    public ValueAnimator valueAnimator(float startValue, float endValue, int duration, OnAnimUpdateListener onAnimUpdateListener) {
+        return SwitchStateMachine.valueAnimator(startValue, endValue, duration, onAnimUpdateListener);
+    }
+
+    /**
+     * 设置是否使用图层缓存绘制。开启后轨道和按钮各自缓存成图片,
+     * 动画和拖动时只做贴图,不再重新光栅化,代价是每个实例多占用几张图层的内存
+     *
+     * @param layered 是否使用图层
+     */
+    public void setLayeredDrawing(boolean layered) {
+        renderer.setLayered(layered);
+        invalidate();
+    }
+
+    /**
+     * 设置是否只重绘按钮扫过的区域。轨道颜色不变时,拖动和动画只重绘按钮新旧位置的并集,
+     * 适合软件绘制或大面积父布局;硬件加速下系统会忽略局部区域,效果等同于全量重绘
+     *
+     * @param enabled 是否开启
+     */
+    public void setDirtyRegionInvalidation(boolean enabled) {
+        dirtyRegionInvalidation = enabled;
+        if (enabled && dirtyRect == null) {
+            dirtyRect = new Rect();
+            thumbRect = new Rect();
+        }
+    }
+
+    /**
+     * 设置背景色的插值方式
+     *
+     * @param colorInterpolation {@link SwitchColorTable#INTERPOLATION_LINEAR}等
+     */
+    public void setColorInterpolation(int colorInterpolation) {
+        renderer.setColorInterpolation(colorInterpolation);
+        invalidate();
+    }
+
+    public void setOnSwitchChangeListener(OnSwitchChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 绑定状态存储,由{@link SwitchStateStore}调用
+     *
+     * @param stateStore 状态存储,null表示解除绑定
+     * @param stateKey   开关key
+     */
+    void setStateStore(SwitchStateStore stateStore, String stateKey) {
+        this.stateStore = stateStore;
+        this.stateKey = stateKey;
+    }
+
+    SwitchStateStore getStateStore() {
+        return stateStore;
+    }
+
+    /**
+     * 设置所在的开关组,由{@link SwitchGroup}调用
+     *
+     * @param group      开关组,null表示移出
+     * @param groupIndex 组内序号
+     */
+    void setGroup(SwitchGroup group, int groupIndex) {
+        this.group = group;
+        this.groupIndex = groupIndex;
+    }
+
+    /**
+     * 开启性能统计,多个开关可共用一个{@link SwitchMetrics}
+     *
+     * @param metrics null表示关闭
+     */
+    public void setSwitchMetrics(SwitchMetrics metrics) {
+        this.metrics = metrics;
+        pendingTouchTime = 0;
+        animationStartTime = 0;
+    }
+
+    /**
+     * 设置回调分发器,快速连续切换合并后在分发器的线程回调,多个开关可共用一个分发器
+     *
+     * @param dispatcher null表示在触摸流程中同步回调
+     */
+    public void setSwitchChangeDispatcher(SwitchChangeDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    public boolean getSwitchStatus() {
+        return stateMachine.getSwitchStatus();
+    }
+
+    public boolean isCanSwitch() {
+        return stateMachine.isCanSwitch();
+    }
+
+    /**
+     * 单个开关保存的状态
+     */
+    static class SavedState extends BaseSavedState {
+        boolean switchStatus;
+        boolean canSwitch;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            switchStatus = in.readByte() != 0;
+            canSwitch = in.readByte() != 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeByte((byte) (switchStatus ? 1 : 0));
+            out.writeByte((byte) (canSwitch ? 1 : 0));
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    public interface OnSwitchChangeListener {
+        void onSwitchChange(boolean switchStatus);
+    }
+
+
+    public interface OnAnimUpdateListener {
+
+        public void onAnimationUpdate(float curValue);
+
+        public void onAnimationFinish();
+
+    }
+}
@@ -0,0 +1,90 @@
+package com.parker.uipractice;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 图片按钮,移动比例过半时显示打开的图片,否则显示关闭的图片;开启淡入淡出后按比例叠加两张图片。
+ * 图片从共享的{@link SwitchSkinAtlas}按区域取,需预先缩放到按钮直径,绘制时直接贴图不做缩放;
+ * 图集还在后台生成时先画一个纯色圆占位
+ */
+public class BitmapThumbPainter implements SwitchThumbPainter {
+
+    /**
+     * 图片画笔,所有实例共享
+     */
+    private static final Paint sBitmapPaint = new Paint();
+
+    /**
+     * 占位画笔,所有实例共享
+     */
+    private static final Paint sPlaceholderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    static {
+        sPlaceholderPaint.setColor(0xFFFFFFFF);
+    }
+
+    private SwitchSkinAtlas skinAtlas;
+
+    /**
+     * 是否按比例淡入淡出两张图片
+     */
+    private boolean crossFade;
+
+    /**
+     * 绘制的目标区域
+     */
+    private final RectF dstRect = new RectF();
+
+    public void setSkinAtlas(SwitchSkinAtlas skinAtlas) {
+        this.skinAtlas = skinAtlas;
+    }
+
+    public SwitchSkinAtlas getSkinAtlas() {
+        return skinAtlas;
+    }
+
+    public void setCrossFade(boolean crossFade) {
+        this.crossFade = crossFade;
+    }
+
+    @Override
+    public void drawThumb(Canvas canvas, float cx, float cy, int radius, float rate) {
+        //画笔所有实例共享,帧图集会在后台线程绘制
+        synchronized (sBitmapPaint) {
+            drawThumbLocked(canvas, cx, cy, radius, rate);
+        }
+    }
+
+    private void drawThumbLocked(Canvas canvas, float cx, float cy, int radius, float rate) {
+        Rect onRect = skinAtlas != null ? skinAtlas.getOnRect() : null;
+        Rect offRect = skinAtlas != null ? skinAtlas.getOffRect() : null;
+        if (crossFade && onRect != null && offRect != null && rate > 0 && rate < 1) {
+            //关图片不透明打底,开图片按比例叠加,过程中按钮始终不透明
+            drawRegion(canvas, offRect, cx, cy, radius);
+            sBitmapPaint.setAlpha((int) (255 * rate + 0.5f));
+            drawRegion(canvas, onRect, cx, cy, radius);
+            sBitmapPaint.setAlpha(255);
+            return;
+        }
+        Rect src = rate >= 0.5 ? onRect : offRect;
+        if (src != null) {
+            drawRegion(canvas, src, cx, cy, radius);
+        } else {
+            canvas.drawCircle(cx, cy, radius, sPlaceholderPaint);
+        }
+    }
+
+    @Override
+    public Object getContentKey() {
+        //图集由缓存共享,同一样式和尺寸是同一个对象
+        return skinAtlas;
+    }
+
+    private void drawRegion(Canvas canvas, Rect src, float cx, float cy, int radius) {
+        dstRect.set(cx - radius, cy - radius, cx - radius + src.width(), cy - radius + src.height());
+        canvas.drawBitmap(skinAtlas.getBitmap(), src, dstRect, sBitmapPaint);
+    }
+}
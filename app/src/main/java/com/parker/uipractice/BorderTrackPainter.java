@@ -0,0 +1,79 @@
+package com.parker.uipractice;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+/**
+ * 带边框的固定颜色轨道,相同样式的实例共享,最近使用的样式才保留
+ */
+public class BorderTrackPainter implements SwitchTrackPainter {
+
+    /**
+     * 保留的轨道样式数量
+     */
+    private static final int MAX_PAINTERS = 16;
+
+    private static final LruCache<String, BorderTrackPainter> sPainters = new LruCache<>(MAX_PAINTERS);
+
+    /**
+     * 矩形边框画笔
+     */
+    private final Paint paintRoundRectBorder;
+
+    /**
+     * 矩形填充背景画笔
+     */
+    private final Paint paintRoundRect;
+
+    /**
+     * 边框大小
+     */
+    private final int borderSize;
+
+    private BorderTrackPainter(int borderColor, int borderSize, int fillColor) {
+        this.borderSize = borderSize;
+        paintRoundRectBorder = new Paint();
+        paintRoundRectBorder.setAntiAlias(true);
+        paintRoundRectBorder.setStyle(Paint.Style.STROKE);
+        paintRoundRectBorder.setColor(borderColor);
+        paintRoundRectBorder.setStrokeWidth(borderSize);
+        paintRoundRect = new Paint();
+        paintRoundRect.setAntiAlias(true);
+        paintRoundRect.setColor(fillColor);
+    }
+
+    /**
+     * 获取指定样式的轨道
+     *
+     * @param borderColor 边框颜色
+     * @param borderSize  边框大小
+     * @param fillColor   填充颜色
+     */
+    public static synchronized BorderTrackPainter obtain(int borderColor, int borderSize, int fillColor) {
+        String key = borderColor + "_" + borderSize + "_" + fillColor;
+        BorderTrackPainter painter = sPainters.get(key);
+        if (painter == null) {
+            painter = new BorderTrackPainter(borderColor, borderSize, fillColor);
+            sPainters.put(key, painter);
+        }
+        return painter;
+    }
+
+    @Override
+    public void drawTrack(Canvas canvas, RectF rectF, float radius, int color) {
+        canvas.drawRoundRect(rectF, radius, radius, paintRoundRectBorder);
+        canvas.drawRoundRect(rectF, radius, radius, paintRoundRect);
+    }
+
+    @Override
+    public int getOutset() {
+        return (borderSize + 1) / 2;
+    }
+
+    @Override
+    public boolean isColorDependent() {
+        return false;
+    }
+}
@@ -0,0 +1,110 @@
+package com.parker.uipractice;
+
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.SparseArray;
+
+import java.util.HashMap;
+
+/**
+ * 渐变圆形按钮,相同颜色的实例共享。
+ * 着色器以原点为圆心按半径缓存,绘制时只通过矩阵平移到按钮位置
+ */
+public class GradientThumbPainter implements SwitchThumbPainter {
+
+    private static final HashMap<Long, GradientThumbPainter> sPainters = new HashMap<>();
+
+    /**
+     * 渐变起始颜色
+     */
+    private final int startColor;
+
+    /**
+     * 渐变结束颜色
+     */
+    private final int endColor;
+
+    /**
+     * 按半径缓存的着色器
+     */
+    private final SparseArray<LinearGradient> shaders = new SparseArray<>();
+
+    /**
+     * 跟随按钮平移着色器的矩阵
+     */
+    private final Matrix shaderMatrix = new Matrix();
+
+    /**
+     * 渐变圆画笔
+     */
+    private final Paint paint;
+
+    private GradientThumbPainter(int startColor, int endColor) {
+        this.startColor = startColor;
+        this.endColor = endColor;
+        paint = new Paint();
+        paint.setAntiAlias(true);
+    }
+
+    /**
+     * 获取指定颜色的渐变按钮
+     *
+     * @param startColor 起始颜色
+     * @param endColor   结束颜色
+     */
+    public static GradientThumbPainter obtain(int startColor, int endColor) {
+        Long key = ((long) startColor << 32) | (endColor & 0xFFFFFFFFL);
+        synchronized (sPainters) {
+            GradientThumbPainter painter = sPainters.get(key);
+            if (painter == null) {
+                painter = new GradientThumbPainter(startColor, endColor);
+                sPainters.put(key, painter);
+            }
+            return painter;
+        }
+    }
+
+    /**
+     * 提前生成指定半径的着色器,可在后台线程调用
+     *
+     * @param radius 按钮半径
+     */
+    public void prepare(int radius) {
+        if (radius > 0) {
+            getShader(radius);
+        }
+    }
+
+    private LinearGradient getShader(int radius) {
+        synchronized (shaders) {
+            LinearGradient shader = shaders.get(radius);
+            if (shader == null) {
+                shader = new LinearGradient(-radius, -radius, radius, radius, startColor, endColor, Shader.TileMode.CLAMP);
+                shaders.put(radius, shader);
+            }
+            return shader;
+        }
+    }
+
+    @Override
+    public synchronized void drawThumb(Canvas canvas, float cx, float cy, int radius, float rate) {
+        if (radius <= 0) {
+            return;
+        }
+        LinearGradient shader = getShader(radius);
+        //只平移着色器,不再每帧创建Paint和LinearGradient
+        shaderMatrix.setTranslate(cx, cy);
+        shader.setLocalMatrix(shaderMatrix);
+        paint.setShader(shader);
+        canvas.drawCircle(cx, cy, radius, paint);
+    }
+
+    @Override
+    public Object getContentKey() {
+        //驻留的绘制器,同一内容只有一个实例
+        return this;
+    }
+}
@@ -0,0 +1,49 @@
+package com.parker.uipractice;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.SparseArray;
+
+/**
+ * 纯色圆形按钮,相同颜色的实例共享
+ */
+public class SolidThumbPainter implements SwitchThumbPainter {
+
+    private static final SparseArray<SolidThumbPainter> sPainters = new SparseArray<>();
+
+    /**
+     * 圆形画笔
+     */
+    private final Paint paintRoundButton;
+
+    private SolidThumbPainter(int color) {
+        paintRoundButton = new Paint();
+        paintRoundButton.setAntiAlias(true);
+        paintRoundButton.setColor(color);
+    }
+
+    /**
+     * 获取指定颜色的按钮
+     *
+     * @param color 按钮颜色
+     */
+    public static synchronized SolidThumbPainter obtain(int color) {
+        SolidThumbPainter painter = sPainters.get(color);
+        if (painter == null) {
+            painter = new SolidThumbPainter(color);
+            sPainters.put(color, painter);
+        }
+        return painter;
+    }
+
+    @Override
+    public void drawThumb(Canvas canvas, float cx, float cy, int radius, float rate) {
+        canvas.drawCircle(cx, cy, radius, paintRoundButton);
+    }
+
+    @Override
+    public Object getContentKey() {
+        //驻留的绘制器,同一内容只有一个实例
+        return this;
+    }
+}
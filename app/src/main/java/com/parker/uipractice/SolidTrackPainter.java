@@ -0,0 +1,46 @@
+package com.parker.uipractice;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * 纯色轨道,颜色跟随移动比例渐变,所有实例共享一个画笔
+ */
+public class SolidTrackPainter implements SwitchTrackPainter {
+
+    private static SolidTrackPainter sInstance;
+
+    /**
+     * 矩形边框画笔
+     */
+    private final Paint paintRoundRect;
+
+    private SolidTrackPainter() {
+        paintRoundRect = new Paint();
+        paintRoundRect.setAntiAlias(true);
+    }
+
+    public static synchronized SolidTrackPainter getInstance() {
+        if (sInstance == null) {
+            sInstance = new SolidTrackPainter();
+        }
+        return sInstance;
+    }
+
+    @Override
+    public synchronized void drawTrack(Canvas canvas, RectF rectF, float radius, int color) {
+        paintRoundRect.setColor(color);
+        canvas.drawRoundRect(rectF, radius, radius, paintRoundRect);
+    }
+
+    @Override
+    public int getOutset() {
+        return 0;
+    }
+
+    @Override
+    public boolean isColorDependent() {
+        return true;
+    }
+}
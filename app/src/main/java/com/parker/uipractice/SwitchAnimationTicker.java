@@ -0,0 +1,323 @@
+package com.parker.uipractice;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+/**
+ * 所有开关共用的动画驱动器,只能在主线程使用。
+ * 进行中的动画保存在基本类型数组里,每帧由同一个帧回调统一推进,不产生任何对象分配
+ */
+public final class SwitchAnimationTicker {
+
+    /**
+     * 动画目标
+     */
+    public interface Target {
+
+        /**
+         * 动画更新
+         *
+         * @param index    目标内的动画序号
+         * @param curValue 当前值
+         */
+        void onAnimationUpdate(int index, float curValue);
+
+        /**
+         * 动画结束,被取消时不回调
+         *
+         * @param index 目标内的动画序号
+         */
+        void onAnimationFinish(int index);
+    }
+
+    /**
+     * 低于JELLY_BEAN时的帧间隔
+     */
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    /**
+     * 按时长插值的动画
+     */
+    private static final int TYPE_TIMED = 0;
+
+    /**
+     * 临界阻尼弹簧动画
+     */
+    private static final int TYPE_SPRING = 1;
+
+    /**
+     * 弹簧停止时允许的位移误差
+     */
+    private static final float SPRING_THRESHOLD = 0.001f;
+
+    private static SwitchAnimationTicker sInstance;
+
+    private Target[] targets = new Target[16];
+    private int[] indices = new int[16];
+    private float[] fromValues = new float[16];
+    private float[] toValues = new float[16];
+    private float[] curValues = new float[16];
+    private long[] startTimes = new long[16];
+    private int[] durations = new int[16];
+    private int[] delays = new int[16];
+    private int[] types = new int[16];
+    private float[] velocities = new float[16];
+    private float[] stiffnesses = new float[16];
+
+    /**
+     * 进行中的动画数量
+     */
+    private int count;
+
+    /**
+     * 是否已请求下一帧
+     */
+    private boolean frameScheduled;
+
+    private final FrameCallbackImpl frameCallback;
+    private final Handler handler;
+    private final Runnable fallbackFrame = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+    };
+
+    private SwitchAnimationTicker() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            frameCallback = new FrameCallbackImpl();
+            handler = null;
+        } else {
+            frameCallback = null;
+            handler = new Handler(Looper.getMainLooper());
+        }
+    }
+
+    public static SwitchAnimationTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new SwitchAnimationTicker();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 开始动画,目标已有进行中的动画时从当前值转向新的终点,时长按剩余距离缩短
+     *
+     * @param target   动画目标
+     * @param index    目标内的动画序号
+     * @param from     起始值
+     * @param to       结束值
+     * @param duration 从0到1的完整时长,毫秒
+     */
+    public void animate(Target target, int index, float from, float to, int duration) {
+        animate(target, index, from, to, duration, 0);
+    }
+
+    /**
+     * 延迟开始动画,延迟期间保持起始值
+     *
+     * @param target   动画目标
+     * @param index    目标内的动画序号
+     * @param from     起始值
+     * @param to       结束值
+     * @param duration 从0到1的完整时长,毫秒
+     * @param delay    延迟,毫秒
+     */
+    public void animate(Target target, int index, float from, float to, int duration, int delay) {
+        int slot = indexOf(target, index);
+        if (slot < 0) {
+            slot = count;
+            ensureCapacity(count + 1);
+            targets[slot] = target;
+            indices[slot] = index;
+            count++;
+        } else {
+            from = curValues[slot];
+        }
+        fromValues[slot] = from;
+        toValues[slot] = to;
+        curValues[slot] = from;
+        startTimes[slot] = -1;
+        durations[slot] = Math.max(1, (int) (duration * Math.min(1f, Math.abs(to - from))));
+        delays[slot] = delay;
+        types[slot] = TYPE_TIMED;
+        scheduleFrame();
+    }
+
+    /**
+     * 开始临界阻尼弹簧动画,时长由距离和初速度决定。
+     * 目标已有进行中的动画时从当前值开始
+     *
+     * @param target    动画目标
+     * @param index     目标内的动画序号
+     * @param from      起始值
+     * @param to        结束值
+     * @param velocity  初速度,每秒的变化量
+     * @param stiffness 弹簧刚度,越大越快
+     */
+    public void spring(Target target, int index, float from, float to, float velocity, float stiffness) {
+        int slot = indexOf(target, index);
+        if (slot < 0) {
+            slot = count;
+            ensureCapacity(count + 1);
+            targets[slot] = target;
+            indices[slot] = index;
+            count++;
+        } else {
+            from = curValues[slot];
+        }
+        fromValues[slot] = from;
+        toValues[slot] = to;
+        curValues[slot] = from;
+        startTimes[slot] = -1;
+        delays[slot] = 0;
+        types[slot] = TYPE_SPRING;
+        velocities[slot] = velocity;
+        stiffnesses[slot] = stiffness;
+        scheduleFrame();
+    }
+
+    /**
+     * 取消动画,不回调结束
+     */
+    public void cancel(Target target, int index) {
+        int slot = indexOf(target, index);
+        if (slot >= 0) {
+            remove(slot);
+        }
+    }
+
+    public boolean isAnimating(Target target, int index) {
+        return indexOf(target, index) >= 0;
+    }
+
+    private int indexOf(Target target, int index) {
+        for (int i = 0; i < count; i++) {
+            if (targets[i] == target && indices[i] == index) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void remove(int slot) {
+        int last = count - 1;
+        targets[slot] = targets[last];
+        indices[slot] = indices[last];
+        fromValues[slot] = fromValues[last];
+        toValues[slot] = toValues[last];
+        curValues[slot] = curValues[last];
+        startTimes[slot] = startTimes[last];
+        durations[slot] = durations[last];
+        delays[slot] = delays[last];
+        types[slot] = types[last];
+        velocities[slot] = velocities[last];
+        stiffnesses[slot] = stiffnesses[last];
+        targets[last] = null;
+        count = last;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= targets.length) {
+            return;
+        }
+        int size = targets.length * 2;
+        targets = Arrays.copyOf(targets, size);
+        indices = Arrays.copyOf(indices, size);
+        fromValues = Arrays.copyOf(fromValues, size);
+        toValues = Arrays.copyOf(toValues, size);
+        curValues = Arrays.copyOf(curValues, size);
+        startTimes = Arrays.copyOf(startTimes, size);
+        durations = Arrays.copyOf(durations, size);
+        delays = Arrays.copyOf(delays, size);
+        types = Arrays.copyOf(types, size);
+        velocities = Arrays.copyOf(velocities, size);
+        stiffnesses = Arrays.copyOf(stiffnesses, size);
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled) {
+            return;
+        }
+        frameScheduled = true;
+        if (frameCallback != null) {
+            frameCallback.post();
+        } else {
+            handler.postDelayed(fallbackFrame, FALLBACK_FRAME_DELAY);
+        }
+    }
+
+    /**
+     * 推进所有动画,倒序遍历,回调中新增的动画从下一帧开始
+     */
+    private void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        long now = frameTimeNanos / 1000000;
+        for (int i = count - 1; i >= 0; i--) {
+            if (i >= count) {
+                continue;
+            }
+            if (startTimes[i] < 0) {
+                startTimes[i] = now + delays[i];
+            }
+            if (now < startTimes[i]) {
+                continue;
+            }
+            Target target = targets[i];
+            int index = indices[i];
+            boolean finished;
+            if (types[i] == TYPE_SPRING) {
+                finished = stepSpring(i, (now - startTimes[i]) / 1000f);
+            } else {
+                float fraction = (float) (now - startTimes[i]) / durations[i];
+                finished = fraction >= 1;
+                //与ValueAnimator默认的AccelerateDecelerateInterpolator一致
+                float interpolated = (float) (Math.cos((fraction + 1) * Math.PI) / 2.0f) + 0.5f;
+                curValues[i] = fromValues[i] + (toValues[i] - fromValues[i]) * interpolated;
+            }
+            if (finished) {
+                remove(i);
+                target.onAnimationFinish(index);
+            } else {
+                target.onAnimationUpdate(index, curValues[i]);
+            }
+        }
+        if (count > 0) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * 计算临界阻尼弹簧在t秒时的值:x(t) = to + (d0 + (v0 + w * d0) * t) * e^(-w * t)
+     *
+     * @return 是否已停止
+     */
+    private boolean stepSpring(int i, float t) {
+        float omega = (float) Math.sqrt(stiffnesses[i]);
+        float d0 = fromValues[i] - toValues[i];
+        float c2 = velocities[i] + omega * d0;
+        float decay = (float) Math.exp(-omega * t);
+        float displacement = (d0 + c2 * t) * decay;
+        float velocity = (c2 - omega * (d0 + c2 * t)) * decay;
+        curValues[i] = toValues[i] + displacement;
+        return Math.abs(displacement) < SPRING_THRESHOLD && Math.abs(velocity) < SPRING_THRESHOLD * omega;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private final class FrameCallbackImpl implements Choreographer.FrameCallback {
+
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            SwitchAnimationTicker.this.doFrame(frameTimeNanos);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.parker.uipractice;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+/**
+ * 开关图片缓存,进程内所有开关共享。
+ * 同一样式的按钮图片打包成{@link SwitchSkinAtlas},以资源id、按钮尺寸和屏幕密度为key,
+ * 按字节数限制大小,内存紧张时清空
+ */
+public final class SwitchBitmapCache implements ComponentCallbacks2 {
+
+    /**
+     * 缓存上限,单位字节
+     */
+    private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+    private static SwitchBitmapCache sInstance;
+
+    /**
+     * 皮肤图集缓存
+     */
+    private final LruCache<AtlasKey, SwitchSkinAtlas> atlasCache;
+
+    /**
+     * 帧图集缓存,和皮肤图集各占一半上限
+     */
+    private final LruCache<SwitchFrameAtlas.Key, SwitchFrameAtlas> frameAtlasCache;
+
+    private SwitchBitmapCache(int maxBytes) {
+        atlasCache = new LruCache<AtlasKey, SwitchSkinAtlas>(maxBytes / 2) {
+            @Override
+            protected int sizeOf(AtlasKey key, SwitchSkinAtlas value) {
+                return value.getByteCount();
+            }
+        };
+        frameAtlasCache = new LruCache<SwitchFrameAtlas.Key, SwitchFrameAtlas>(maxBytes / 2) {
+            @Override
+            protected int sizeOf(SwitchFrameAtlas.Key key, SwitchFrameAtlas value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * 获取缓存实例,首次调用时注册内存回调
+     *
+     * @param context 上下文
+     */
+    public static synchronized SwitchBitmapCache getInstance(Context context) {
+        if (sInstance == null) {
+            long maxMemory = Runtime.getRuntime().maxMemory();
+            sInstance = new SwitchBitmapCache((int) Math.min(MAX_CACHE_BYTES, maxMemory / 16));
+            Context appContext = context.getApplicationContext();
+            (appContext != null ? appContext : context).registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    /**
+     * 获取皮肤图集,未缓存时按按钮尺寸解码开关按钮图片并打包,单独的图片不进入缓存
+     *
+     * @param res       资源
+     * @param onResId   开按钮图片资源id,没有时传-1
+     * @param offResId  关按钮图片资源id,没有时传-1
+     * @param thumbSize 按钮图片缩放到的尺寸
+     * @return 图集,没有任何可解码的图片时返回null
+     */
+    public SwitchSkinAtlas getSkinAtlas(Resources res, int onResId, int offResId, int thumbSize) {
+        int density = res.getDisplayMetrics().densityDpi;
+        AtlasKey key = new AtlasKey(onResId, offResId, thumbSize, density);
+        SwitchSkinAtlas atlas = atlasCache.get(key);
+        if (atlas == null) {
+            Bitmap on = onResId != -1 ? decodeScaled(res, onResId, thumbSize, thumbSize) : null;
+            Bitmap off = offResId != -1 ? decodeScaled(res, offResId, thumbSize, thumbSize) : null;
+            atlas = SwitchSkinAtlas.pack(on, off, density);
+            recycle(on);
+            recycle(off);
+            if (atlas != null) {
+                atlasCache.put(key, atlas);
+            }
+        }
+        return atlas;
+    }
+
+    /**
+     * 只从缓存获取皮肤图集,不解码
+     */
+    public SwitchSkinAtlas getSkinAtlasIfCached(Resources res, int onResId, int offResId, int thumbSize) {
+        return atlasCache.get(new AtlasKey(onResId, offResId, thumbSize, res.getDisplayMetrics().densityDpi));
+    }
+
+    SwitchFrameAtlas getFrameAtlas(SwitchFrameAtlas.Key key) {
+        return frameAtlasCache.get(key);
+    }
+
+    /**
+     * 放入帧图集,超过帧图集缓存上限的不放入,否则会被立即淘汰
+     *
+     * @return 是否放入
+     */
+    boolean putFrameAtlas(SwitchFrameAtlas.Key key, SwitchFrameAtlas atlas) {
+        if (atlas.getByteCount() > frameAtlasCache.maxSize()) {
+            return false;
+        }
+        frameAtlasCache.put(key, atlas);
+        return true;
+    }
+
+    /**
+     * 单张帧图集的字节数上限
+     */
+    int getMaxFrameAtlasBytes() {
+        return frameAtlasCache.maxSize();
+    }
+
+    private static void recycle(Bitmap bitmap) {
+        if (bitmap != null) {
+            bitmap.recycle();
+        }
+    }
+
+    private static Bitmap decodeScaled(Resources res, int resId, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(res, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+        Bitmap source = BitmapFactory.decodeResource(res, resId, options);
+        if (source == null) {
+            return null;
+        }
+        if (source.getWidth() == width && source.getHeight() == height) {
+            return source;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(source, width, height, true);
+        if (scaled != source) {
+            source.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * 计算不小于目标尺寸的最大2的幂次降采样倍数
+     */
+    private static int calculateInSampleSize(int srcWidth, int srcHeight, int width, int height) {
+        int inSampleSize = 1;
+        while (srcWidth / (inSampleSize * 2) >= width && srcHeight / (inSampleSize * 2) >= height) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * 清空缓存,已被开关引用的图片不受影响
+     */
+    public void clear() {
+        atlasCache.evictAll();
+        frameAtlasCache.evictAll();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+
+    }
+
+    /**
+     * 皮肤图集缓存key
+     */
+    private static final class AtlasKey {
+        final int onResId;
+        final int offResId;
+        final int thumbSize;
+        final int density;
+
+        AtlasKey(int onResId, int offResId, int thumbSize, int density) {
+            this.onResId = onResId;
+            this.offResId = offResId;
+            this.thumbSize = thumbSize;
+            this.density = density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AtlasKey)) {
+                return false;
+            }
+            AtlasKey key = (AtlasKey) o;
+            return onResId == key.onResId && offResId == key.offResId
+                    && thumbSize == key.thumbSize && density == key.density;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = onResId;
+            result = 31 * result + offResId;
+            result = 31 * result + thumbSize;
+            result = 31 * result + density;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.parker.uipractice;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 开关状态回调分发器。窗口期内的连续切换合并为最终状态,状态回到窗口开始前的值时不回调;
+ * 窗口结束后在指定的{@link Executor}上统一回调,触摸流程不再同步执行业务代码。
+ * 只能在主线程调用,回调顺序依赖Executor,建议使用单线程Executor
+ */
+public class SwitchChangeDispatcher {
+
+    /**
+     * 默认合并窗口,毫秒
+     */
+    public static final long DEFAULT_WINDOW = 300;
+
+    private final long window;
+    private final Executor executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 窗口内待回调的开关
+     */
+    private final IdentityHashMap<BaseSwitchView, Pending> pendingSwitches = new IdentityHashMap<>();
+
+    /**
+     * 窗口内待回调的开关组,值为奇数次切换的开关序号
+     */
+    private final IdentityHashMap<SwitchGroup, BitSet> pendingGroups = new IdentityHashMap<>();
+
+    private boolean flushScheduled;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * 单个开关的待回调状态
+     */
+    private static final class Pending {
+        BaseSwitchView.OnSwitchChangeListener listener;
+        boolean initialStatus;
+        boolean switchStatus;
+    }
+
+    /**
+     * 窗口结束后在主线程回调
+     *
+     * @param window 合并窗口,毫秒
+     */
+    public SwitchChangeDispatcher(long window) {
+        this(window, null);
+    }
+
+    /**
+     * @param window   合并窗口,毫秒
+     * @param executor 回调所在的Executor,null表示主线程
+     */
+    public SwitchChangeDispatcher(long window, Executor executor) {
+        this.window = window;
+        this.executor = executor;
+    }
+
+    /**
+     * 开关被切换
+     */
+    void dispatch(BaseSwitchView switchView, BaseSwitchView.OnSwitchChangeListener listener, boolean switchStatus) {
+        Pending pending = pendingSwitches.get(switchView);
+        if (pending == null) {
+            pending = new Pending();
+            pending.initialStatus = !switchStatus;
+            pendingSwitches.put(switchView, pending);
+        }
+        pending.listener = listener;
+        pending.switchStatus = switchStatus;
+        scheduleFlush();
+    }
+
+    /**
+     * 开关组内的开关发生变化
+     *
+     * @param changed 状态发生变化的开关序号
+     */
+    void dispatchGroup(SwitchGroup group, BitSet changed) {
+        BitSet toggled = pendingGroups.get(group);
+        if (toggled == null) {
+            toggled = new BitSet(group.size());
+            pendingGroups.put(group, toggled);
+        }
+        toggled.xor(changed);
+        scheduleFlush();
+    }
+
+    /**
+     * 立即回调窗口内的所有变化
+     */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        flushScheduled = false;
+        if (pendingSwitches.isEmpty() && pendingGroups.isEmpty()) {
+            return;
+        }
+        final ArrayList<Runnable> callbacks = new ArrayList<>();
+        for (Pending pending : pendingSwitches.values()) {
+            final BaseSwitchView.OnSwitchChangeListener listener = pending.listener;
+            final boolean switchStatus = pending.switchStatus;
+            if (listener != null && switchStatus != pending.initialStatus) {
+                callbacks.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onSwitchChange(switchStatus);
+                    }
+                });
+            }
+        }
+        pendingSwitches.clear();
+        for (SwitchGroup group : pendingGroups.keySet()) {
+            final SwitchGroup.OnGroupSwitchChangeListener listener = group.getOnGroupSwitchChangeListener();
+            final BitSet changed = pendingGroups.get(group);
+            if (listener != null && !changed.isEmpty()) {
+                //状态在主线程取快照,回调线程不再访问控件
+                final BitSet states = group.getStates();
+                callbacks.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onGroupSwitchChange(changed, states);
+                    }
+                });
+            }
+        }
+        pendingGroups.clear();
+        if (callbacks.isEmpty()) {
+            return;
+        }
+        Runnable deliver = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < callbacks.size(); i++) {
+                    callbacks.get(i).run();
+                }
+            }
+        };
+        if (executor != null) {
+            executor.execute(deliver);
+        } else {
+            deliver.run();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, window);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.parker.uipractice;
+
+import android.util.LruCache;
+
+/**
+ * 开关背景色渐变表,开关颜色变化时预先计算256级ARGB颜色,
+ * 绘制时按移动比例直接取值。透明度参与插值,颜色按预乘透明度插值,
+ * 相同颜色和插值方式的开关共享同一张表,最近使用的表才保留
+ */
+public final class SwitchColorTable {
+
+    /**
+     * 在sRGB空间线性插值,与原来的效果一致
+     */
+    public static final int INTERPOLATION_LINEAR = 0;
+
+    /**
+     * 转换到线性光空间插值,过渡中间色不会发暗
+     */
+    public static final int INTERPOLATION_GAMMA = 1;
+
+    /**
+     * 在OKLab空间插值,亮度和色相过渡更均匀
+     */
+    public static final int INTERPOLATION_OKLAB = 2;
+
+    /**
+     * 渐变级数
+     */
+    private static final int STEPS = 256;
+
+    /**
+     * 保留的渐变表数量,每张表1KB
+     */
+    private static final int MAX_TABLES = 32;
+
+    private static final LruCache<Key, SwitchColorTable> sTables = new LruCache<>(MAX_TABLES);
+
+    private final int[] colors = new int[STEPS];
+
+    private SwitchColorTable(int offColor, int onColor, int interpolation) {
+        float[] start = toSpace(offColor, interpolation);
+        float[] end = toSpace(onColor, interpolation);
+        float[] mixed = new float[4];
+        for (int i = 0; i < STEPS; i++) {
+            float t = i / (float) (STEPS - 1);
+            for (int c = 0; c < 4; c++) {
+                mixed[c] = start[c] + (end[c] - start[c]) * t;
+            }
+            colors[i] = fromSpace(mixed, interpolation);
+        }
+        //两端直接使用原色,不受转换误差影响
+        colors[0] = offColor;
+        colors[STEPS - 1] = onColor;
+    }
+
+    /**
+     * 获取渐变表
+     *
+     * @param offColor      关闭时的背景色
+     * @param onColor       打开时的背景色
+     * @param interpolation 插值方式
+     */
+    public static SwitchColorTable obtain(int offColor, int onColor, int interpolation) {
+        Key key = new Key(offColor, onColor, interpolation);
+        synchronized (sTables) {
+            SwitchColorTable table = sTables.get(key);
+            if (table == null) {
+                table = new SwitchColorTable(offColor, onColor, interpolation);
+                sTables.put(key, table);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * 根据比例获取渐变颜色
+     *
+     * @param rate 比例
+     * @return 渐变颜色
+     */
+    public int getColor(float rate) {
+        int index = (int) (rate * (STEPS - 1) + 0.5f);
+        if (index <= 0) {
+            return colors[0];
+        }
+        if (index >= STEPS - 1) {
+            return colors[STEPS - 1];
+        }
+        return colors[index];
+    }
+
+    /**
+     * 转换到插值空间,返回预乘透明度的{alpha, c1, c2, c3}
+     */
+    private static float[] toSpace(int color, int interpolation) {
+        float alpha = (color >>> 24) / 255f;
+        float r = ((color >> 16) & 0xFF) / 255f;
+        float g = ((color >> 8) & 0xFF) / 255f;
+        float b = (color & 0xFF) / 255f;
+        if (interpolation != INTERPOLATION_LINEAR) {
+            r = srgbToLinear(r);
+            g = srgbToLinear(g);
+            b = srgbToLinear(b);
+        }
+        if (interpolation == INTERPOLATION_OKLAB) {
+            float l = (float) Math.cbrt(0.4122214708f * r + 0.5363325363f * g + 0.0514459929f * b);
+            float m = (float) Math.cbrt(0.2119034982f * r + 0.6806995451f * g + 0.1073969566f * b);
+            float s = (float) Math.cbrt(0.0883024619f * r + 0.2817188376f * g + 0.6299787005f * b);
+            r = 0.2104542553f * l + 0.7936177850f * m - 0.0040720468f * s;
+            g = 1.9779984951f * l - 2.4285922050f * m + 0.4505937099f * s;
+            b = 0.0259040371f * l + 0.7827717662f * m - 0.8086757660f * s;
+        }
+        return new float[]{alpha, r * alpha, g * alpha, b * alpha};
+    }
+
+    /**
+     * 从插值空间转换回ARGB颜色
+     */
+    private static int fromSpace(float[] value, int interpolation) {
+        float alpha = value[0];
+        if (alpha <= 0) {
+            return 0;
+        }
+        float r = value[1] / alpha;
+        float g = value[2] / alpha;
+        float b = value[3] / alpha;
+        if (interpolation == INTERPOLATION_OKLAB) {
+            float l = r + 0.3963377774f * g + 0.2158037573f * b;
+            float m = r - 0.1055613458f * g - 0.0638541728f * b;
+            float s = r - 0.0894841775f * g - 1.2914855480f * b;
+            l = l * l * l;
+            m = m * m * m;
+            s = s * s * s;
+            r = 4.0767416621f * l - 3.3077115913f * m + 0.2309699292f * s;
+            g = -1.2684380046f * l + 2.6097574011f * m - 0.3413193965f * s;
+            b = -0.0041960863f * l - 0.7034186147f * m + 1.7076147010f * s;
+        }
+        if (interpolation != INTERPOLATION_LINEAR) {
+            r = linearToSrgb(r);
+            g = linearToSrgb(g);
+            b = linearToSrgb(b);
+        }
+        return (toByte(alpha) << 24) | (toByte(r) << 16) | (toByte(g) << 8) | toByte(b);
+    }
+
+    private static float srgbToLinear(float c) {
+        return c <= 0.04045f ? c / 12.92f : (float) Math.pow((c + 0.055f) / 1.055f, 2.4f);
+    }
+
+    private static float linearToSrgb(float c) {
+        if (c <= 0) {
+            return 0;
+        }
+        return c <= 0.0031308f ? c * 12.92f : (float) (1.055f * Math.pow(c, 1 / 2.4f) - 0.055f);
+    }
+
+    private static int toByte(float c) {
+        int value = (int) (c * 255 + 0.5f);
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    /**
+     * 渐变表key
+     */
+    private static final class Key {
+        final int offColor;
+        final int onColor;
+        final int interpolation;
+
+        Key(int offColor, int onColor, int interpolation) {
+            this.offColor = offColor;
+            this.onColor = onColor;
+            this.interpolation = interpolation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return offColor == key.offColor && onColor == key.onColor
+                    && interpolation == key.interpolation;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = offColor;
+            result = 31 * result + onColor;
+            result = 31 * result + interpolation;
+            return result;
+        }
+    }
+}
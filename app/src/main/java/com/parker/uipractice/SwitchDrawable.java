@@ -0,0 +1,294 @@
+package com.parker.uipractice;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.TypedValue;
+
+/**
+ * 开关Drawable,可以作为TextView的compound drawable或ImageView、背景使用,
+ * 不需要额外的开关View。移动比例由level决定,0为关,10000为开
+ */
+public class SwitchDrawable extends Drawable implements SwitchAnimationTicker.Target {
+
+    /**
+     * 最大level,对应打开
+     */
+    public static final int MAX_LEVEL = 10000;
+
+    /**
+     * 切换动画时长
+     */
+    private static final int ANIM_DURATION = 300;
+
+    private final SwitchRenderer renderer = new SwitchRenderer();
+
+    /**
+     * 开关状态
+     */
+    private boolean switchStatus;
+
+    /**
+     * 能否切换
+     */
+    private boolean isCanSwitch = true;
+
+    /**
+     * 透明度
+     */
+    private int alpha = 255;
+
+    /**
+     * 颜色过滤,和透明度一起通过图层画笔作用于整个开关
+     */
+    private ColorFilter colorFilter;
+
+    /**
+     * 着色,没有设置颜色过滤时按当前状态的颜色生效
+     */
+    private ColorStateList tint;
+    private PorterDuff.Mode tintMode = PorterDuff.Mode.SRC_IN;
+    private PorterDuffColorFilter tintFilter;
+    private int tintFilterColor;
+    private PorterDuff.Mode tintFilterMode;
+
+    /**
+     * 图层画笔,需要透明度或颜色过滤时才创建
+     */
+    private Paint layerPaint;
+
+    private final int intrinsicWidth;
+    private final int intrinsicHeight;
+
+    public SwitchDrawable(Context context) {
+        intrinsicWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 58,
+                context.getResources().getDisplayMetrics());
+        intrinsicHeight = intrinsicWidth / 2;
+        renderer.setTrackPainter(SolidTrackPainter.getInstance());
+        renderer.setThumbPainter(SolidThumbPainter.obtain(0xFFFFFFFF));
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        //在边界内居中放置宽高比2:1的轨道
+        int width = bounds.width();
+        int height = bounds.height();
+        if (height <= width / 2) {
+            width = height * 2;
+        } else {
+            height = width / 2;
+        }
+        int left = bounds.left + (bounds.width() - width) / 2;
+        int top = bounds.top + (bounds.height() - height) / 2;
+        renderer.setBounds(left, top, left + width, top + height);
+    }
+
+    @Override
+    protected boolean onLevelChange(int level) {
+        invalidateSelf();
+        return true;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        float rate = getLevel() / (float) MAX_LEVEL;
+        ColorFilter filter = colorFilter != null ? colorFilter : tintFilter;
+        if (alpha < 255 || filter != null) {
+            //轨道和按钮的画笔在开关间共享,透明度和颜色过滤放在图层画笔上
+            if (layerPaint == null) {
+                layerPaint = new Paint();
+            }
+            layerPaint.setAlpha(alpha);
+            layerPaint.setColorFilter(filter);
+            Rect bounds = getBounds();
+            int save = canvas.saveLayer(bounds.left, bounds.top, bounds.right, bounds.bottom, layerPaint, Canvas.ALL_SAVE_FLAG);
+            renderer.draw(canvas, rate, isCanSwitch);
+            canvas.restoreToCount(save);
+        } else {
+            renderer.draw(canvas, rate, isCanSwitch);
+        }
+    }
+
+    @Override
+    public void onAnimationUpdate(int index, float curValue) {
+        setLevel((int) (Math.max(0f, Math.min(1f, curValue)) * MAX_LEVEL + 0.5f));
+    }
+
+    @Override
+    public void onAnimationFinish(int index) {
+        setLevel(switchStatus ? MAX_LEVEL : 0);
+    }
+
+    /**
+     * 切换开关状态
+     *
+     * @param switchStatus 开或者关
+     * @param animate      是否动画
+     */
+    public void setSwitchStatus(boolean switchStatus, boolean animate) {
+        if (this.switchStatus == switchStatus) {
+            return;
+        }
+        this.switchStatus = switchStatus;
+        if (animate) {
+            SwitchAnimationTicker.getInstance().animate(this, 0, getLevel() / (float) MAX_LEVEL,
+                    switchStatus ? 1.0f : 0.0f, ANIM_DURATION);
+        } else {
+            SwitchAnimationTicker.getInstance().cancel(this, 0);
+            setLevel(switchStatus ? MAX_LEVEL : 0);
+        }
+    }
+
+    public boolean getSwitchStatus() {
+        return switchStatus;
+    }
+
+    /**
+     * 设置是否能切换,不能切换时绘制半透明遮罩
+     */
+    public void setCanSwitch(boolean canSwitch) {
+        isCanSwitch = canSwitch;
+        invalidateSelf();
+    }
+
+    /**
+     * 设置开关背景色
+     *
+     * @param offColor 关闭时的背景色
+     * @param onColor  打开时的背景色
+     */
+    public void setColors(int offColor, int onColor) {
+        renderer.setColors(offColor, onColor);
+        invalidateSelf();
+    }
+
+    /**
+     * 设置纯色按钮
+     */
+    public void setThumbColor(int color) {
+        renderer.setThumbPainter(SolidThumbPainter.obtain(color));
+        invalidateSelf();
+    }
+
+    /**
+     * 设置渐变按钮
+     */
+    public void setThumbGradient(int startColor, int endColor) {
+        renderer.setThumbPainter(GradientThumbPainter.obtain(startColor, endColor));
+        invalidateSelf();
+    }
+
+    /**
+     * 设置内部圆形跟边缘的距离
+     */
+    public void setInnerThick(int innerThick) {
+        renderer.setInnerThick(innerThick);
+        invalidateSelf();
+    }
+
+    /**
+     * 设置颜色插值方式
+     *
+     * @param colorInterpolation {@link SwitchColorTable#INTERPOLATION_LINEAR}等
+     */
+    public void setColorInterpolation(int colorInterpolation) {
+        renderer.setColorInterpolation(colorInterpolation);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return intrinsicWidth;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return intrinsicHeight;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (this.alpha != alpha) {
+            this.alpha = alpha;
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * 设置颜色过滤,优先于着色
+     */
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        if (this.colorFilter != colorFilter) {
+            this.colorFilter = colorFilter;
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public ColorFilter getColorFilter() {
+        return colorFilter;
+    }
+
+    @Override
+    public void setTintList(ColorStateList tint) {
+        this.tint = tint;
+        updateTintFilter(getState());
+        invalidateSelf();
+    }
+
+    @Override
+    public void setTintMode(PorterDuff.Mode tintMode) {
+        this.tintMode = tintMode;
+        updateTintFilter(getState());
+        invalidateSelf();
+    }
+
+    @Override
+    public boolean isStateful() {
+        return tint != null && tint.isStateful();
+    }
+
+    @Override
+    protected boolean onStateChange(int[] state) {
+        return updateTintFilter(state);
+    }
+
+    /**
+     * 按状态更新着色过滤,颜色和模式不变时不重新创建
+     *
+     * @return 过滤是否变化
+     */
+    private boolean updateTintFilter(int[] state) {
+        if (tint == null || tintMode == null) {
+            boolean changed = tintFilter != null;
+            tintFilter = null;
+            return changed;
+        }
+        int color = tint.getColorForState(state, tint.getDefaultColor());
+        if (tintFilter != null && color == tintFilterColor && tintMode == tintFilterMode) {
+            return false;
+        }
+        tintFilter = new PorterDuffColorFilter(color, tintMode);
+        tintFilterColor = color;
+        tintFilterMode = tintMode;
+        return true;
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
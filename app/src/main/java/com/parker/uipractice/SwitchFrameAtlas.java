@@ -0,0 +1,103 @@
+package com.parker.uipractice;
+
+import android.graphics.Bitmap;
+
+/**
+ * 预先绘制的开关帧图集,所有帧按网格排列在一张位图中。
+ * 由{@link SwitchBitmapCache}按样式、尺寸和帧数共享,多个开关引用同一张图集,不能回收
+ */
+final class SwitchFrameAtlas {
+
+    final Bitmap bitmap;
+    final int frameCount;
+    final int frameWidth;
+    final int frameHeight;
+    final int columns;
+
+    /**
+     * 轨道绘制超出轨道区域的距离
+     */
+    final int outset;
+
+    SwitchFrameAtlas(Bitmap bitmap, int frameCount, int frameWidth, int frameHeight, int columns, int outset) {
+        this.bitmap = bitmap;
+        this.frameCount = frameCount;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.columns = columns;
+        this.outset = outset;
+    }
+
+    int getByteCount() {
+        return bitmap.getByteCount();
+    }
+
+    /**
+     * 帧按接近正方形的网格排列时的列数
+     */
+    static int getColumns(int frameCount) {
+        return (int) Math.ceil(Math.sqrt(frameCount));
+    }
+
+    /**
+     * 按帧数和单帧尺寸估算ARGB图集的字节数
+     */
+    static long getByteCount(int frameCount, int frameWidth, int frameHeight) {
+        int columns = getColumns(frameCount);
+        int rows = (frameCount + columns - 1) / columns;
+        return 4L * columns * frameWidth * rows * frameHeight;
+    }
+
+    /**
+     * 图集缓存key。轨道绘制器和颜色表是驻留的,按引用比较;按钮按绘制内容比较
+     */
+    static final class Key {
+        final SwitchTrackPainter trackPainter;
+        final Object thumbContent;
+        final SwitchColorTable colorTable;
+        final int width;
+        final int height;
+        final int radius;
+        final int innerThick;
+        final int frameCount;
+
+        Key(SwitchTrackPainter trackPainter, Object thumbContent, SwitchColorTable colorTable,
+            int width, int height, int radius, int innerThick, int frameCount) {
+            this.trackPainter = trackPainter;
+            this.thumbContent = thumbContent;
+            this.colorTable = colorTable;
+            this.width = width;
+            this.height = height;
+            this.radius = radius;
+            this.innerThick = innerThick;
+            this.frameCount = frameCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return trackPainter == key.trackPainter && thumbContent == key.thumbContent
+                    && colorTable == key.colorTable && width == key.width && height == key.height
+                    && radius == key.radius && innerThick == key.innerThick && frameCount == key.frameCount;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(trackPainter);
+            result = 31 * result + System.identityHashCode(thumbContent);
+            result = 31 * result + System.identityHashCode(colorTable);
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + radius;
+            result = 31 * result + innerThick;
+            result = 31 * result + frameCount;
+            return result;
+        }
+    }
+}
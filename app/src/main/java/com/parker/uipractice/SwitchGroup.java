@@ -0,0 +1,165 @@
+package com.parker.uipractice;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * 开关组,一次性批量设置多个开关的状态,并只回调一次。
+ * 开关按加入顺序编号,状态用{@link BitSet}表示。
+ * 组内开关被用户切换时也会回调,设置{@link SwitchChangeDispatcher}后窗口内的变化合并为一次回调
+ */
+public class SwitchGroup {
+
+    /**
+     * 批量状态变化回调
+     */
+    public interface OnGroupSwitchChangeListener {
+
+        /**
+         * 批量设置完成或组内开关被切换
+         *
+         * @param changed 状态发生变化的开关序号
+         * @param states  所有开关的当前状态
+         */
+        void onGroupSwitchChange(BitSet changed, BitSet states);
+    }
+
+    private final ArrayList<BaseSwitchView> switches = new ArrayList<>();
+
+    private OnGroupSwitchChangeListener listener;
+
+    private SwitchChangeDispatcher dispatcher;
+
+    /**
+     * 加入开关
+     *
+     * @return 开关在组内的序号
+     */
+    public int add(BaseSwitchView switchView) {
+        switches.add(switchView);
+        int index = switches.size() - 1;
+        switchView.setGroup(this, index);
+        return index;
+    }
+
+    /**
+     * 移除所有开关
+     */
+    public void clear() {
+        for (int i = 0; i < switches.size(); i++) {
+            switches.get(i).setGroup(null, 0);
+        }
+        switches.clear();
+    }
+
+    public int size() {
+        return switches.size();
+    }
+
+    public BaseSwitchView get(int index) {
+        return switches.get(index);
+    }
+
+    /**
+     * 获取所有开关的当前状态
+     */
+    public BitSet getStates() {
+        BitSet states = new BitSet(switches.size());
+        for (int i = 0; i < switches.size(); i++) {
+            if (switches.get(i).getSwitchStatus()) {
+                states.set(i);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * 批量设置开关状态,超出states长度的开关视为关
+     *
+     * @param states      开关状态
+     * @param animate     是否动画
+     * @param staggerTime 相邻两个变化开关的动画间隔,毫秒,0表示同时开始
+     */
+    public void setStates(BitSet states, boolean animate, int staggerTime) {
+        BitSet changed = new BitSet(switches.size());
+        int delay = 0;
+        for (int i = 0; i < switches.size(); i++) {
+            BaseSwitchView switchView = switches.get(i);
+            boolean status = states.get(i);
+            if (switchView.getSwitchStatus() != status) {
+                switchView.setSwitchStatus(status, animate, delay);
+                changed.set(i);
+                delay += staggerTime;
+            }
+        }
+        dispatchChange(changed);
+    }
+
+    /**
+     * 批量设置开关状态
+     *
+     * @param states      开关状态
+     * @param animate     是否动画
+     * @param staggerTime 相邻两个变化开关的动画间隔,毫秒,0表示同时开始
+     */
+    public void setStates(boolean[] states, boolean animate, int staggerTime) {
+        BitSet bits = new BitSet(states.length);
+        for (int i = 0; i < states.length; i++) {
+            if (states[i]) {
+                bits.set(i);
+            }
+        }
+        setStates(bits, animate, staggerTime);
+    }
+
+    /**
+     * 全部打开或关闭
+     *
+     * @param switchStatus 开或者关
+     * @param animate      是否动画
+     */
+    public void setAll(boolean switchStatus, boolean animate) {
+        BitSet states = new BitSet(switches.size());
+        if (switchStatus) {
+            states.set(0, switches.size());
+        }
+        setStates(states, animate, 0);
+    }
+
+    /**
+     * 组内开关被用户切换
+     */
+    void onMemberSwitchChange(int index) {
+        BitSet changed = new BitSet(switches.size());
+        changed.set(index);
+        dispatchChange(changed);
+    }
+
+    private void dispatchChange(BitSet changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (dispatcher != null) {
+            dispatcher.dispatchGroup(this, changed);
+        } else if (listener != null) {
+            listener.onGroupSwitchChange(changed, getStates());
+        }
+    }
+
+    public void setOnGroupSwitchChangeListener(OnGroupSwitchChangeListener listener) {
+        this.listener = listener;
+    }
+
+    OnGroupSwitchChangeListener getOnGroupSwitchChangeListener() {
+        return listener;
+    }
+
+    /**
+     * 设置回调分发器,窗口内的批量设置和用户切换合并为一次回调,在分发器的线程执行
+     *
+     * @param dispatcher null表示同步回调
+     */
+    public void setSwitchChangeDispatcher(SwitchChangeDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+}
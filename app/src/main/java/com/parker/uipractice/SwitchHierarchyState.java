@@ -0,0 +1,169 @@
+package com.parker.uipractice;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.BitSet;
+
+/**
+ * 整个视图层级的开关状态,所有开关的状态打包成{@link BitSet}存成一个Parcelable,
+ * 不再每个开关各存一个SavedState,开关很多的页面保存和恢复都更快,Bundle也更小。
+ * 开关按深度优先顺序编号,恢复时层级结构需和保存时一致,开关不需要设置id
+ * <pre>
+ * onCreate:             SwitchHierarchyState.setSwitchSaveEnabled(root, false);
+ * onSaveInstanceState:  outState.putParcelable(KEY, SwitchHierarchyState.save(root));
+ * onRestoreInstanceState: ((SwitchHierarchyState) state.getParcelable(KEY)).restore(root);
+ * </pre>
+ */
+public final class SwitchHierarchyState implements Parcelable {
+
+    /**
+     * 开关数量
+     */
+    private final int count;
+
+    /**
+     * 各开关的状态
+     */
+    private final BitSet states;
+
+    /**
+     * 不能切换的开关
+     */
+    private final BitSet disabled;
+
+    private SwitchHierarchyState(int count, BitSet states, BitSet disabled) {
+        this.count = count;
+        this.states = states;
+        this.disabled = disabled;
+    }
+
+    /**
+     * 保存层级中所有开关的状态
+     *
+     * @param root 根视图
+     */
+    public static SwitchHierarchyState save(View root) {
+        BitSet states = new BitSet();
+        BitSet disabled = new BitSet();
+        int count = collect(root, 0, states, disabled);
+        return new SwitchHierarchyState(count, states, disabled);
+    }
+
+    private static int collect(View view, int index, BitSet states, BitSet disabled) {
+        if (view instanceof BaseSwitchView) {
+            BaseSwitchView switchView = (BaseSwitchView) view;
+            states.set(index, switchView.getSwitchStatus());
+            disabled.set(index, !switchView.isCanSwitch());
+            return index + 1;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                index = collect(group.getChildAt(i), index, states, disabled);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 把状态恢复到层级中的开关,多出的开关保持不变
+     *
+     * @param root 根视图
+     */
+    public void restore(View root) {
+        apply(root, 0);
+    }
+
+    private int apply(View view, int index) {
+        if (view instanceof BaseSwitchView) {
+            if (index < count) {
+                BaseSwitchView switchView = (BaseSwitchView) view;
+                switchView.setSwitchStatus(states.get(index));
+                switchView.setCanSwitch(!disabled.get(index));
+            }
+            return index + 1;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                index = apply(group.getChildAt(i), index);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 开关单独保存状态,使用整体保存时关闭,避免重复保存
+     *
+     * @param root    根视图
+     * @param enabled 是否单独保存
+     */
+    public static void setSwitchSaveEnabled(View root, boolean enabled) {
+        if (root instanceof BaseSwitchView) {
+            root.setSaveEnabled(enabled);
+        } else if (root instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) root;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                setSwitchSaveEnabled(group.getChildAt(i), enabled);
+            }
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 把{@link BitSet}按64位一组写入,兼容API 19以下没有toLongArray的系统
+     */
+    static void writeBitSet(Parcel dest, BitSet bits) {
+        long[] words = new long[(bits.length() + 63) >>> 6];
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            words[i >>> 6] |= 1L << i;
+        }
+        dest.writeLongArray(words);
+    }
+
+    static BitSet readBitSet(Parcel source) {
+        long[] words = source.createLongArray();
+        BitSet bits = new BitSet(words.length << 6);
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                bits.set((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return bits;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(count);
+        writeBitSet(dest, states);
+        writeBitSet(dest, disabled);
+    }
+
+    public static final Creator<SwitchHierarchyState> CREATOR = new Creator<SwitchHierarchyState>() {
+        @Override
+        public SwitchHierarchyState createFromParcel(Parcel source) {
+            int count = source.readInt();
+            BitSet states = readBitSet(source);
+            BitSet disabled = readBitSet(source);
+            return new SwitchHierarchyState(count, states, disabled);
+        }
+
+        @Override
+        public SwitchHierarchyState[] newArray(int size) {
+            return new SwitchHierarchyState[size];
+        }
+    };
+}
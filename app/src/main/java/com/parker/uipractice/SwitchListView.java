@@ -0,0 +1,541 @@
+package com.parker.uipractice;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewTreeObserver;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 多开关控件,用一个View按网格绘制大量开关,不再为每个开关创建View。
+ * 开关状态保存在{@link BitSet}里,只有正在动画的开关才占用移动比例,
+ * 绘制时只画屏幕上可见的行。硬件加速下画布裁剪是整个View,滚动也不会重新录制,
+ * 所以自己计算可见区域,监听滚动在可见行变化时重绘,放在ScrollView里每次只录制可见的行
+ */
+public class SwitchListView extends View implements SwitchAnimationTicker.Target {
+
+    /**
+     * 默认开关宽,单位dp
+     */
+    private static final float DEFAULT_CELL_WIDTH = 58;
+
+    /**
+     * 默认开关高,单位dp
+     */
+    private static final float DEFAULT_CELL_HEIGHT = 36;
+
+    /**
+     * 切换动画时长
+     */
+    private static final int ANIM_DURATION = 300;
+
+    /**
+     * 点击判定时长,毫秒
+     */
+    private static final int TAP_TIMEOUT = 200;
+
+    /**
+     * 所有开关共用的绘制器
+     */
+    private final SwitchRenderer renderer = new SwitchRenderer();
+
+    /**
+     * 开关状态
+     */
+    private final BitSet states = new BitSet();
+
+    /**
+     * 正在动画的开关的移动比例,NaN表示没有动画,首次动画时才创建
+     */
+    private float[] rates;
+
+    /**
+     * 开关数量
+     */
+    private int count;
+
+    /**
+     * 列数
+     */
+    private int columns = 1;
+
+    /**
+     * 开关宽
+     */
+    private int cellWidth;
+
+    /**
+     * 开关高
+     */
+    private int cellHeight;
+
+    /**
+     * 开关之间的间距
+     */
+    private int spacing;
+
+    /**
+     * 不能切换的开关,为空表示都能切换
+     */
+    private final BitSet disabled = new BitSet();
+
+    /**
+     * 按下的开关序号,-1表示没有
+     */
+    private int downIndex = -1;
+
+    /**
+     * 按下的坐标
+     */
+    private float startX;
+    private float startY;
+
+    /**
+     * 按下时间
+     */
+    private long downTime;
+
+    private final int touchSlop;
+
+    /**
+     * 可见区域
+     */
+    private final Rect visibleRect = new Rect();
+    private final Rect clipRect = new Rect();
+
+    /**
+     * 上次绘制的行范围,lastDrawnRow小于firstDrawnRow表示没有画任何行
+     */
+    private int firstDrawnRow;
+    private int lastDrawnRow = -1;
+
+    /**
+     * {@link #getVisibleRows()}计算出的行范围
+     */
+    private int firstVisibleRow;
+    private int lastVisibleRow;
+
+    /**
+     * 父布局滚动后可见行变化时重绘
+     */
+    private final ViewTreeObserver.OnScrollChangedListener scrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    getVisibleRows();
+                    if (firstVisibleRow != firstDrawnRow || lastVisibleRow != lastDrawnRow) {
+                        invalidate();
+                    }
+                }
+            };
+
+    private OnSwitchChangeListener listener;
+
+    public SwitchListView(Context context) {
+        this(context, null);
+    }
+
+    public SwitchListView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public SwitchListView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        TypedArray mTypedArray = context.obtainStyledAttributes(attrs, R.styleable.SwitchView);
+        int onColor = mTypedArray.getColor(R.styleable.SwitchView_on_color, 0xFF32C781);
+        int offColor = mTypedArray.getColor(R.styleable.SwitchView_off_color, 0xFFC9C9C9);
+        int buttonBgColor = mTypedArray.getColor(R.styleable.SwitchView_button_bg_color, 0xFFFFFFFF);
+        mTypedArray.recycle();
+        renderer.setColors(offColor, onColor);
+        renderer.setTrackPainter(SolidTrackPainter.getInstance());
+        renderer.setThumbPainter(SolidThumbPainter.obtain(buttonBgColor));
+        cellWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, DEFAULT_CELL_WIDTH,
+                context.getResources().getDisplayMetrics());
+        cellHeight = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, DEFAULT_CELL_HEIGHT,
+                context.getResources().getDisplayMetrics());
+        updateRendererBounds();
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int rows = (count + columns - 1) / columns;
+        int width = columns * cellWidth + Math.max(0, columns - 1) * spacing
+                + getPaddingLeft() + getPaddingRight();
+        int height = rows * cellHeight + Math.max(0, rows - 1) * spacing
+                + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(scrollChangedListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnScrollChangedListener(scrollChangedListener);
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * 计算屏幕上可见的行,结果放在visibleRect、firstVisibleRow和lastVisibleRow
+     *
+     * @return 是否有可见的行
+     */
+    private boolean getVisibleRows() {
+        firstVisibleRow = 0;
+        lastVisibleRow = -1;
+        if (count == 0 || !getLocalVisibleRect(visibleRect)) {
+            return false;
+        }
+        int pitchY = cellHeight + spacing;
+        firstVisibleRow = Math.max(0, (visibleRect.top - getPaddingTop()) / pitchY);
+        lastVisibleRow = Math.min((count - 1) / columns, (visibleRect.bottom - getPaddingTop()) / pitchY);
+        return firstVisibleRow <= lastVisibleRow;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        boolean visible = getVisibleRows();
+        firstDrawnRow = firstVisibleRow;
+        lastDrawnRow = lastVisibleRow;
+        //软件绘制时画布裁剪是脏区域,再和可见区域取交集
+        if (!visible || !canvas.getClipBounds(clipRect) || !visibleRect.intersect(clipRect)) {
+            return;
+        }
+        int pitchX = cellWidth + spacing;
+        int pitchY = cellHeight + spacing;
+        int firstRow = Math.max(firstVisibleRow, (visibleRect.top - getPaddingTop()) / pitchY);
+        int lastRow = Math.min(lastVisibleRow, (visibleRect.bottom - getPaddingTop()) / pitchY);
+        int firstColumn = Math.max(0, (visibleRect.left - getPaddingLeft()) / pitchX);
+        int lastColumn = Math.min(columns - 1, (visibleRect.right - getPaddingLeft()) / pitchX);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int index = row * columns + column;
+                if (index >= count) {
+                    break;
+                }
+                int save = canvas.save();
+                canvas.translate(getPaddingLeft() + column * pitchX, getPaddingTop() + row * pitchY);
+                renderer.draw(canvas, getRate(index), !disabled.get(index));
+                canvas.restoreToCount(save);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                startX = event.getX();
+                startY = event.getY();
+                downTime = event.getEventTime();
+                downIndex = indexAt(startX, startY);
+                return downIndex >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (downIndex >= 0 && (Math.abs(event.getX() - startX) > touchSlop
+                        || Math.abs(event.getY() - startY) > touchSlop)) {
+                    downIndex = -1;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (downIndex >= 0 && event.getEventTime() - downTime < TAP_TIMEOUT
+                        && !disabled.get(downIndex)) {
+                    boolean switchStatus = !states.get(downIndex);
+                    setSwitchStatus(downIndex, switchStatus, true);
+                    if (listener != null) {
+                        listener.onSwitchChange(downIndex, switchStatus);
+                    }
+                }
+                downIndex = -1;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                downIndex = -1;
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 获取坐标处的开关序号
+     *
+     * @return 开关序号,不在任何开关上时返回-1
+     */
+    public int indexAt(float x, float y) {
+        int pitchX = cellWidth + spacing;
+        int pitchY = cellHeight + spacing;
+        float localX = x - getPaddingLeft();
+        float localY = y - getPaddingTop();
+        if (localX < 0 || localY < 0) {
+            return -1;
+        }
+        int column = (int) (localX / pitchX);
+        int row = (int) (localY / pitchY);
+        if (column >= columns || localX - column * pitchX > cellWidth
+                || localY - row * pitchY > cellHeight) {
+            return -1;
+        }
+        int index = row * columns + column;
+        return index < count ? index : -1;
+    }
+
+    private float getRate(int index) {
+        if (rates != null && !Float.isNaN(rates[index])) {
+            return rates[index];
+        }
+        return states.get(index) ? 1.0f : 0.0f;
+    }
+
+    /**
+     * 重绘单个开关,不在上次绘制的行里时不重绘,滚动到可见时会整体重绘
+     */
+    private void invalidateCell(int index) {
+        int row = index / columns;
+        if (row < firstDrawnRow || row > lastDrawnRow) {
+            return;
+        }
+        int left = getPaddingLeft() + (index % columns) * (cellWidth + spacing);
+        int top = getPaddingTop() + (index / columns) * (cellHeight + spacing);
+        invalidate(left, top, left + cellWidth, top + cellHeight);
+    }
+
+    @Override
+    public void onAnimationUpdate(int index, float curValue) {
+        if (index < count) {
+            rates[index] = Math.max(0f, Math.min(1f, curValue));
+            invalidateCell(index);
+        }
+    }
+
+    @Override
+    public void onAnimationFinish(int index) {
+        if (index < count) {
+            rates[index] = Float.NaN;
+            invalidateCell(index);
+        }
+    }
+
+    /**
+     * 设置开关数量,新增的开关为关
+     */
+    public void setCount(int count) {
+        for (int i = count; i < this.count; i++) {
+            SwitchAnimationTicker.getInstance().cancel(this, i);
+        }
+        if (count < this.count) {
+            states.clear(count, this.count);
+            disabled.clear(count, this.count);
+        }
+        this.count = count;
+        if (rates != null) {
+            int oldLength = rates.length;
+            rates = Arrays.copyOf(rates, count);
+            if (count > oldLength) {
+                Arrays.fill(rates, oldLength, count, Float.NaN);
+            }
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 设置开关状态
+     *
+     * @param index        开关序号
+     * @param switchStatus 开或者关
+     * @param animate      是否动画
+     */
+    public void setSwitchStatus(int index, boolean switchStatus, boolean animate) {
+        checkIndex(index);
+        if (states.get(index) == switchStatus) {
+            return;
+        }
+        float from = getRate(index);
+        states.set(index, switchStatus);
+        if (animate) {
+            if (rates == null) {
+                rates = new float[count];
+                Arrays.fill(rates, Float.NaN);
+            }
+            rates[index] = from;
+            SwitchAnimationTicker.getInstance().animate(this, index, from, switchStatus ? 1.0f : 0.0f, ANIM_DURATION);
+        } else {
+            SwitchAnimationTicker.getInstance().cancel(this, index);
+            if (rates != null) {
+                rates[index] = Float.NaN;
+            }
+            invalidateCell(index);
+        }
+    }
+
+    public boolean getSwitchStatus(int index) {
+        checkIndex(index);
+        return states.get(index);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + " out of range, count is " + count);
+        }
+    }
+
+    /**
+     * 一次设置所有开关的状态,不做动画
+     */
+    public void setStates(BitSet newStates) {
+        for (int i = 0; i < count; i++) {
+            SwitchAnimationTicker.getInstance().cancel(this, i);
+        }
+        if (rates != null) {
+            Arrays.fill(rates, Float.NaN);
+        }
+        states.clear();
+        states.or(newStates);
+        if (states.length() > count) {
+            states.clear(count, states.length());
+        }
+        invalidate();
+    }
+
+    /**
+     * 获取所有开关的状态副本
+     */
+    public BitSet getStates() {
+        return (BitSet) states.clone();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.states = (BitSet) states.clone();
+        state.disabled = (BitSet) disabled.clone();
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        setStates(savedState.states);
+        disabled.clear();
+        disabled.or(savedState.disabled);
+        if (disabled.length() > count) {
+            disabled.clear(count, disabled.length());
+        }
+    }
+
+    /**
+     * 设置开关能否切换
+     */
+    public void setCanSwitch(int index, boolean canSwitch) {
+        checkIndex(index);
+        disabled.set(index, !canSwitch);
+        invalidateCell(index);
+    }
+
+    /**
+     * 设置列数
+     */
+    public void setColumns(int columns) {
+        this.columns = Math.max(1, columns);
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 设置单个开关的尺寸和间距
+     *
+     * @param cellWidth  开关宽
+     * @param cellHeight 开关高
+     * @param spacing    间距
+     */
+    public void setCellSize(int cellWidth, int cellHeight, int spacing) {
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.spacing = spacing;
+        updateRendererBounds();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 在单元格内居中放置宽高比2:1的开关
+     */
+    private void updateRendererBounds() {
+        int width = cellWidth;
+        int height = cellHeight;
+        if (height <= width / 2) {
+            width = height * 2;
+        } else {
+            height = width / 2;
+        }
+        int left = (cellWidth - width) / 2;
+        int top = (cellHeight - height) / 2;
+        renderer.setBounds(left, top, left + width, top + height);
+    }
+
+    public void setOnSwitchChangeListener(OnSwitchChangeListener listener) {
+        this.listener = listener;
+    }
+
+    public interface OnSwitchChangeListener {
+        void onSwitchChange(int index, boolean switchStatus);
+    }
+
+    /**
+     * 保存的状态,所有开关的状态各用一个{@link BitSet}存储
+     */
+    static class SavedState extends BaseSavedState {
+        BitSet states;
+        BitSet disabled;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            states = SwitchHierarchyState.readBitSet(in);
+            disabled = SwitchHierarchyState.readBitSet(in);
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            SwitchHierarchyState.writeBitSet(out, states);
+            SwitchHierarchyState.writeBitSet(out, disabled);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+}
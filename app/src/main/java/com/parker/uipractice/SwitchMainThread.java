@@ -0,0 +1,29 @@
+package com.parker.uipractice;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * 主线程调度,所有开关共用一个主线程Handler
+ */
+final class SwitchMainThread {
+
+    private static Handler sHandler;
+
+    private SwitchMainThread() {
+    }
+
+    /**
+     * 在主线程执行,可在任意线程调用
+     */
+    static void post(Runnable runnable) {
+        getHandler().post(runnable);
+    }
+
+    private static synchronized Handler getHandler() {
+        if (sHandler == null) {
+            sHandler = new Handler(Looper.getMainLooper());
+        }
+        return sHandler;
+    }
+}
@@ -0,0 +1,261 @@
+package com.parker.uipractice;
+
+import android.os.Debug;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 开关性能统计,通过{@link BaseSwitchView#setSwitchMetrics(SwitchMetrics)}开启,多个开关可共用一个实例。
+ * 统计绘制耗时、触摸到首帧延迟、动画实际帧数和期望帧数、绘制分配次数,
+ * 数据写入无锁直方图,导出线程可随时读取
+ */
+public class SwitchMetrics {
+
+    /**
+     * 默认帧间隔,60Hz
+     */
+    public static final long DEFAULT_FRAME_INTERVAL = 16666667L;
+
+    /**
+     * 单次绘制耗时,微秒
+     */
+    private final Histogram drawTime = new Histogram();
+
+    /**
+     * 触摸到第一帧绘制的延迟,微秒
+     */
+    private final Histogram touchLatency = new Histogram();
+
+    /**
+     * 单次绘制的对象分配次数,需开启{@link #setAllocationCounting(boolean)}
+     */
+    private final Histogram drawAllocations = new Histogram();
+
+    /**
+     * 每次切换动画丢掉的帧数
+     */
+    private final Histogram droppedFrames = new Histogram();
+
+    private final AtomicLong expectedFrames = new AtomicLong();
+    private final AtomicLong deliveredFrames = new AtomicLong();
+
+    private final long frameInterval;
+
+    private static volatile boolean allocationCounting;
+
+    public SwitchMetrics() {
+        this(DEFAULT_FRAME_INTERVAL);
+    }
+
+    /**
+     * @param frameInterval 屏幕帧间隔,纳秒
+     */
+    public SwitchMetrics(long frameInterval) {
+        this.frameInterval = frameInterval;
+    }
+
+    /**
+     * 开关分配计数。分配计数作用于整个进程且有额外开销,只建议在测试包或抽样设备上开启
+     */
+    //Debug的分配计数已废弃但没有替代接口,分配计数的调用都集中在这个类
+    @SuppressWarnings("deprecation")
+    public static void setAllocationCounting(boolean enabled) {
+        if (allocationCounting == enabled) {
+            return;
+        }
+        allocationCounting = enabled;
+        if (enabled) {
+            Debug.startAllocCounting();
+        } else {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    static boolean isAllocationCounting() {
+        return allocationCounting;
+    }
+
+    /**
+     * 当前线程的对象分配次数,需开启{@link #setAllocationCounting(boolean)}
+     */
+    @SuppressWarnings("deprecation")
+    static int getThreadAllocCount() {
+        return Debug.getThreadAllocCount();
+    }
+
+    void recordDraw(long durationNanos) {
+        drawTime.record(durationNanos / 1000);
+    }
+
+    void recordAllocations(int count) {
+        drawAllocations.record(count);
+    }
+
+    void recordTouchLatency(long latencyMillis) {
+        touchLatency.record(latencyMillis * 1000);
+    }
+
+    /**
+     * 记录一次切换动画
+     *
+     * @param durationNanos 第一帧到最后一帧的时间
+     * @param frames        实际绘制的帧数
+     */
+    void recordAnimation(long durationNanos, int frames) {
+        long expected = (durationNanos + frameInterval / 2) / frameInterval + 1;
+        expectedFrames.addAndGet(expected);
+        deliveredFrames.addAndGet(Math.min(frames, expected));
+        droppedFrames.record(Math.max(0, expected - frames));
+    }
+
+    public Histogram getDrawTime() {
+        return drawTime;
+    }
+
+    public Histogram getTouchLatency() {
+        return touchLatency;
+    }
+
+    public Histogram getDrawAllocations() {
+        return drawAllocations;
+    }
+
+    public Histogram getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * 切换动画期间按帧间隔应绘制的总帧数
+     */
+    public long getExpectedFrames() {
+        return expectedFrames.get();
+    }
+
+    /**
+     * 切换动画期间实际绘制的总帧数
+     */
+    public long getDeliveredFrames() {
+        return deliveredFrames.get();
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset() {
+        drawTime.reset();
+        touchLatency.reset();
+        drawAllocations.reset();
+        droppedFrames.reset();
+        expectedFrames.set(0);
+        deliveredFrames.set(0);
+    }
+
+    /**
+     * 无锁直方图,按2的幂分桶:第0桶为0,第i桶为[2^(i-1), 2^i - 1]
+     */
+    public static final class Histogram {
+
+        public static final int BUCKET_COUNT = 32;
+
+        /**
+         * {@link #drainTo(long[])}输出中总数、总和、最大值的位置,紧跟在各桶之后
+         */
+        public static final int DRAIN_COUNT = BUCKET_COUNT;
+        public static final int DRAIN_SUM = BUCKET_COUNT + 1;
+        public static final int DRAIN_MAX = BUCKET_COUNT + 2;
+
+        /**
+         * {@link #drainTo(long[])}需要的数组长度
+         */
+        public static final int DRAIN_SIZE = BUCKET_COUNT + 3;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value)));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSum() {
+            return sum.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getBucket(int index) {
+            return buckets.get(index);
+        }
+
+        /**
+         * 桶的上界
+         */
+        public static long getBucketUpperBound(int index) {
+            return index == 0 ? 0 : (1L << index) - 1;
+        }
+
+        /**
+         * 估算分位数,返回所在桶的上界
+         *
+         * @param percentile 0到1
+         */
+        public long getPercentile(float percentile) {
+            long total = 0;
+            long[] snapshot = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            long threshold = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += snapshot[i];
+                if (seen >= threshold && seen > 0) {
+                    return getBucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * 取出各桶计数、总数、总和和最大值并清零,适合导出增量。
+         * 并发记录的值可能各部分分到相邻两次取出里,但多次取出的累计结果和各桶一致
+         *
+         * @param out 长度至少为{@link #DRAIN_SIZE},各桶之后依次是总数、总和、最大值
+         */
+        public void drainTo(long[] out) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                out[i] = buckets.getAndSet(i, 0);
+            }
+            out[DRAIN_COUNT] = count.getAndSet(0);
+            out[DRAIN_SUM] = sum.getAndSet(0);
+            out[DRAIN_MAX] = max.getAndSet(0);
+        }
+
+        public void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.parker.uipractice;
+
+import android.content.Context;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 开关绘制资源预热,在后台线程生成皮肤图集和渐变着色器,列表绑定前调用
+ */
+public final class SwitchPrewarmer {
+
+    private static Executor sExecutor;
+
+    private SwitchPrewarmer() {
+    }
+
+    /**
+     * 设置执行预热和异步解码的线程池,默认使用单个低优先级后台线程
+     */
+    public static synchronized void setExecutor(Executor executor) {
+        sExecutor = executor;
+    }
+
+    /**
+     * 在后台线程执行
+     */
+    static void execute(Runnable runnable) {
+        getExecutor().execute(runnable);
+    }
+
+    private static synchronized Executor getExecutor() {
+        if (sExecutor == null) {
+            ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "SwitchPrewarmer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            sExecutor = executor;
+        }
+        return sExecutor;
+    }
+
+    /**
+     * 预热{@link SwitchButton}样式:按开关尺寸生成皮肤图集、轨道和颜色表
+     *
+     * @param context  上下文
+     * @param styleRes 开关使用的style资源
+     * @param width    开关宽,像素,不含padding
+     * @param height   开关高,像素,不含padding
+     */
+    public static void prewarmSwitchButton(Context context, final int styleRes, final int width, final int height) {
+        final Context appContext = getAppContext(context);
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                SwitchStyle style = SwitchStyle.resolve(appContext, styleRes, SwitchStyle.TYPE_BUTTON);
+                int switchOnResourceId = style.getOnResourceId();
+                int switchOffResourceId = style.getOffResourceId();
+                int thumbSize = 2 * (getRadius(width, height) - style.getInnerThick());
+                if (thumbSize > 0 && (switchOnResourceId != -1 || switchOffResourceId != -1)) {
+                    SwitchBitmapCache.getInstance(appContext).getSkinAtlas(appContext.getResources(),
+                            switchOnResourceId, switchOffResourceId, thumbSize);
+                }
+            }
+        });
+    }
+
+    /**
+     * 预热{@link GradientSwitchView}样式:生成颜色表和对应尺寸的渐变着色器
+     *
+     * @param context  上下文
+     * @param styleRes 开关使用的style资源
+     * @param width    开关宽,像素,不含padding
+     * @param height   开关高,像素,不含padding
+     */
+    public static void prewarmGradientSwitchView(Context context, final int styleRes, final int width, final int height) {
+        final Context appContext = getAppContext(context);
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                SwitchStyle style = SwitchStyle.resolve(appContext, styleRes, SwitchStyle.TYPE_GRADIENT);
+                GradientThumbPainter painter = (GradientThumbPainter) style.getThumbPainter();
+                painter.prepare(getRadius(width, height) - SwitchRenderer.DEFAULT_INNER_THICK);
+            }
+        });
+    }
+
+    /**
+     * 与开关测量一致的按钮半径
+     */
+    private static int getRadius(int width, int height) {
+        return Math.min(height / 2, width / 4);
+    }
+
+    private static Context getAppContext(Context context) {
+        Context appContext = context.getApplicationContext();
+        return appContext != null ? appContext : context;
+    }
+}
@@ -0,0 +1,619 @@
+package com.parker.uipractice;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 开关绘制器,负责轨道和按钮的几何计算、颜色渐变,
+ * 具体的轨道和按钮样式由{@link SwitchTrackPainter}和{@link SwitchThumbPainter}决定
+ */
+public class SwitchRenderer {
+
+    /**
+     * 默认的内部圆形跟边缘的距离
+     */
+    public static final int DEFAULT_INNER_THICK = 8;
+
+    /**
+     * 不能切换的画笔,所有实例共享
+     */
+    private static Paint sUnSwitchPaint;
+
+    /**
+     * 矩形边框
+     */
+    private final RectF rectF = new RectF();
+
+    /**
+     * 内部按钮半径
+     */
+    private int radius;
+
+    /**
+     * 内部圆形跟边缘的距离
+     */
+    private int innerThick = DEFAULT_INNER_THICK;
+
+    /**
+     * 打开时的背景色
+     */
+    private int onColor = 0xFF32C781;
+
+    /**
+     * 关闭时的背景色
+     */
+    private int offColor = 0xFFC9C9C9;
+
+    /**
+     * 颜色插值方式
+     */
+    private int colorInterpolation = SwitchColorTable.INTERPOLATION_LINEAR;
+
+    /**
+     * 背景色渐变表
+     */
+    private SwitchColorTable colorTable = SwitchColorTable.obtain(offColor, onColor, colorInterpolation);
+
+    private SwitchTrackPainter trackPainter = SolidTrackPainter.getInstance();
+    private SwitchThumbPainter thumbPainter = SolidThumbPainter.obtain(0xFFFFFFFF);
+
+    /**
+     * 贴图画笔,所有实例共享
+     */
+    private static Paint sLayerPaint;
+
+    /**
+     * 轨道遮罩画笔,颜色取自颜色表,所有实例共享
+     */
+    private static Paint sTrackMaskPaint;
+
+    /**
+     * 是否使用图层缓存绘制
+     */
+    private boolean layered;
+
+    /**
+     * 图层缓存是否有效
+     */
+    private boolean layersValid;
+
+    /**
+     * 轨道图层。颜色相关的轨道存为ALPHA_8遮罩,绘制时用颜色表的颜色着色,
+     * 插值方式和透明度与直接绘制一致;颜色无关的轨道直接存绘制结果
+     */
+    private Bitmap trackLayer;
+
+    /**
+     * 轨道图层是否为遮罩
+     */
+    private boolean trackLayerIsMask;
+
+    /**
+     * 关闭状态的按钮图层
+     */
+    private Bitmap offThumbLayer;
+
+    /**
+     * 打开状态的按钮图层
+     */
+    private Bitmap onThumbLayer;
+
+    /**
+     * 轨道图层超出轨道区域的距离
+     */
+    private int trackLayerOutset;
+
+    /**
+     * 帧图集的帧数,0表示不使用帧图集
+     */
+    private int atlasFrameCount;
+
+    /**
+     * 当前使用的帧图集,可能和其他开关共享,不能回收
+     */
+    private SwitchFrameAtlas frameAtlas;
+
+    /**
+     * 帧图集是否和当前尺寸、样式一致
+     */
+    private boolean atlasValid;
+
+    /**
+     * 帧图集是否正在后台生成
+     */
+    private boolean atlasPending;
+
+    /**
+     * 帧图集请求的序号,尺寸或样式变化后递增,过期的生成结果丢弃
+     */
+    private int atlasGeneration;
+
+    /**
+     * 帧图集在后台生成完成后的回调,在主线程调用
+     */
+    private Runnable frameAtlasListener;
+
+    /**
+     * 共享帧图集的缓存,null表示不共享
+     */
+    private SwitchBitmapCache atlasCache;
+
+    /**
+     * 绘制帧图集用的源区域和目标区域
+     */
+    private final Rect atlasSrc = new Rect();
+    private final RectF atlasDst = new RectF();
+
+    public SwitchRenderer() {
+        if (sUnSwitchPaint == null) {
+            sUnSwitchPaint = new Paint();
+            sUnSwitchPaint.setAntiAlias(true);
+            sUnSwitchPaint.setColor(0x7fffffff);
+            sLayerPaint = new Paint();
+            sLayerPaint.setFilterBitmap(true);
+            sTrackMaskPaint = new Paint();
+        }
+    }
+
+    /**
+     * 设置轨道区域,按钮半径取高度的一半和宽度的四分之一中较小的值。
+     * 区域不变时直接返回,只平移时保留图层,尺寸变化才重新生成
+     */
+    public void setBounds(int left, int top, int right, int bottom) {
+        if (rectF.left == left && rectF.top == top && rectF.right == right && rectF.bottom == bottom) {
+            return;
+        }
+        boolean sizeChanged = rectF.right - rectF.left != right - left || rectF.bottom - rectF.top != bottom - top;
+        rectF.left = left;
+        rectF.top = top;
+        rectF.right = right;
+        rectF.bottom = bottom;
+        radius = Math.min((bottom - top) / 2, (right - left) / 4);
+        if (sizeChanged) {
+            invalidateLayers();
+        }
+    }
+
+    /**
+     * 绘制开关
+     *
+     * @param canvas      画布
+     * @param rate        移动比例
+     * @param isCanSwitch 能否切换
+     */
+    public void draw(Canvas canvas, float rate, boolean isCanSwitch) {
+        if (atlasFrameCount > 0 && ensureFrameAtlas()) {
+            drawFrameAtlas(canvas, rate);
+        } else if (layered && ensureLayers()) {
+            drawLayers(canvas, rate);
+        } else {
+            trackPainter.drawTrack(canvas, rectF, radius, getColor(rate));
+            thumbPainter.drawThumb(canvas, getThumbCenterX(rate), getThumbCenterY(), radius - innerThick, rate);
+        }
+        if (!isCanSwitch) {
+            canvas.drawRoundRect(rectF, radius, radius, sUnSwitchPaint);
+        }
+    }
+
+    /**
+     * 用图层绘制:轨道遮罩按颜色表着色,按钮图层只平移,
+     * 每帧不再重新光栅化抗锯齿的圆角矩形和圆
+     */
+    private void drawLayers(Canvas canvas, float rate) {
+        float trackLeft = rectF.left - trackLayerOutset;
+        float trackTop = rectF.top - trackLayerOutset;
+        if (trackLayerIsMask) {
+            //ALPHA_8位图按画笔颜色绘制
+            sTrackMaskPaint.setColor(getColor(rate));
+            canvas.drawBitmap(trackLayer, trackLeft, trackTop, sTrackMaskPaint);
+        } else {
+            canvas.drawBitmap(trackLayer, trackLeft, trackTop, sLayerPaint);
+        }
+        Bitmap thumb = rate >= 0.5 ? onThumbLayer : offThumbLayer;
+        float offset = thumb.getWidth() / 2f;
+        canvas.drawBitmap(thumb, getThumbCenterX(rate) - offset, getThumbCenterY() - offset, sLayerPaint);
+    }
+
+    /**
+     * 按当前尺寸和样式生成图层
+     *
+     * @return 图层是否可用
+     */
+    private boolean ensureLayers() {
+        if (layersValid) {
+            return true;
+        }
+        int thumbRadius = radius - innerThick;
+        if (radius <= 0 || thumbRadius <= 0) {
+            return false;
+        }
+        releaseLayers();
+        Canvas layerCanvas = new Canvas();
+        trackLayerOutset = trackPainter.getOutset();
+        int trackWidth = (int) Math.ceil(rectF.width()) + 2 * trackLayerOutset;
+        int trackHeight = (int) Math.ceil(rectF.height()) + 2 * trackLayerOutset;
+        trackLayerIsMask = trackPainter.isColorDependent();
+        trackLayer = createTrackLayer(layerCanvas, trackWidth, trackHeight, trackLayerIsMask);
+        //留出1像素给抗锯齿边缘
+        int thumbSize = 2 * thumbRadius + 2;
+        offThumbLayer = createThumbLayer(layerCanvas, thumbSize, thumbRadius, 0);
+        onThumbLayer = createThumbLayer(layerCanvas, thumbSize, thumbRadius, 1);
+        layerCanvas.setBitmap(null);
+        layersValid = true;
+        return true;
+    }
+
+    private Bitmap createTrackLayer(Canvas layerCanvas, int width, int height, boolean mask) {
+        Bitmap layer = Bitmap.createBitmap(width, height, mask ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888);
+        layerCanvas.setBitmap(layer);
+        int save = layerCanvas.save();
+        layerCanvas.translate(trackLayerOutset - rectF.left, trackLayerOutset - rectF.top);
+        //颜色相关的轨道只用传入的颜色绘制,用不透明色画出的就是形状遮罩
+        trackPainter.drawTrack(layerCanvas, rectF, radius, mask ? 0xFF000000 : getColor(0));
+        layerCanvas.restoreToCount(save);
+        return layer;
+    }
+
+    private Bitmap createThumbLayer(Canvas layerCanvas, int size, int thumbRadius, float rate) {
+        Bitmap layer = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        layerCanvas.setBitmap(layer);
+        thumbPainter.drawThumb(layerCanvas, size / 2f, size / 2f, thumbRadius, rate);
+        return layer;
+    }
+
+    /**
+     * 用帧图集绘制:按比例选取最近的一帧,整帧只需一次贴图
+     */
+    private void drawFrameAtlas(Canvas canvas, float rate) {
+        SwitchFrameAtlas atlas = frameAtlas;
+        int frame = Math.round(Math.max(0, Math.min(1, rate)) * (atlas.frameCount - 1));
+        int left = (frame % atlas.columns) * atlas.frameWidth;
+        int top = (frame / atlas.columns) * atlas.frameHeight;
+        atlasSrc.set(left, top, left + atlas.frameWidth, top + atlas.frameHeight);
+        atlasDst.set(rectF.left - atlas.outset, rectF.top - atlas.outset,
+                rectF.left - atlas.outset + atlas.frameWidth, rectF.top - atlas.outset + atlas.frameHeight);
+        canvas.drawBitmap(atlas.bitmap, atlasSrc, atlasDst, sLayerPaint);
+    }
+
+    /**
+     * 取当前尺寸和样式的帧图集。缓存中有时直接使用,否则提交后台绘制,完成前按普通方式绘制;
+     * 帧数按缓存上限减少,减到2帧仍放不下时不使用帧图集
+     *
+     * @return 帧图集是否可用
+     */
+    private boolean ensureFrameAtlas() {
+        if (atlasValid) {
+            return frameAtlas != null;
+        }
+        if (atlasPending || radius <= 0 || radius - innerThick <= 0) {
+            return false;
+        }
+        int outset = trackPainter.getOutset();
+        int frameWidth = (int) Math.ceil(rectF.width()) + 2 * outset;
+        int frameHeight = (int) Math.ceil(rectF.height()) + 2 * outset;
+        int maxBytes = atlasCache != null ? atlasCache.getMaxFrameAtlasBytes() : Integer.MAX_VALUE;
+        int frameCount = atlasFrameCount;
+        while (frameCount >= 2 && SwitchFrameAtlas.getByteCount(frameCount, frameWidth, frameHeight) > maxBytes) {
+            frameCount--;
+        }
+        if (frameCount < 2) {
+            frameAtlas = null;
+            atlasValid = true;
+            return false;
+        }
+        Object thumbContent = thumbPainter.getContentKey();
+        SwitchFrameAtlas.Key key = atlasCache != null && thumbContent != null
+                ? new SwitchFrameAtlas.Key(trackPainter, thumbContent, colorTable,
+                frameWidth, frameHeight, radius, innerThick, frameCount)
+                : null;
+        SwitchFrameAtlas atlas = key != null ? atlasCache.getFrameAtlas(key) : null;
+        if (atlas != null) {
+            frameAtlas = atlas;
+            atlasValid = true;
+            return true;
+        }
+        atlasPending = true;
+        SwitchPrewarmer.execute(new FrameAtlasJob(this, atlasGeneration, key, frameCount,
+                frameWidth, frameHeight, outset));
+        return false;
+    }
+
+    /**
+     * 后台生成的帧图集回到主线程,尺寸或样式已变化时丢弃
+     */
+    private void onFrameAtlasReady(int generation, SwitchFrameAtlas atlas) {
+        if (generation != atlasGeneration) {
+            return;
+        }
+        atlasPending = false;
+        frameAtlas = atlas;
+        atlasValid = true;
+        if (frameAtlasListener != null) {
+            frameAtlasListener.run();
+        }
+    }
+
+    /**
+     * 在后台线程绘制帧图集,提交时复制几何和绘制器,不读取主线程会修改的字段
+     */
+    private static final class FrameAtlasJob implements Runnable {
+        private final SwitchRenderer renderer;
+        private final int generation;
+        private final SwitchFrameAtlas.Key key;
+        private final SwitchBitmapCache cache;
+        private final SwitchTrackPainter trackPainter;
+        private final SwitchThumbPainter thumbPainter;
+        private final SwitchColorTable colorTable;
+        private final RectF bounds;
+        private final int radius;
+        private final int thumbRadius;
+        private final int frameCount;
+        private final int frameWidth;
+        private final int frameHeight;
+        private final int outset;
+
+        FrameAtlasJob(SwitchRenderer renderer, int generation, SwitchFrameAtlas.Key key, int frameCount,
+                      int frameWidth, int frameHeight, int outset) {
+            this.renderer = renderer;
+            this.generation = generation;
+            this.key = key;
+            this.cache = renderer.atlasCache;
+            this.trackPainter = renderer.trackPainter;
+            this.thumbPainter = renderer.thumbPainter;
+            this.colorTable = renderer.colorTable;
+            this.bounds = new RectF(renderer.rectF);
+            this.radius = renderer.radius;
+            this.thumbRadius = renderer.radius - renderer.innerThick;
+            this.frameCount = frameCount;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.outset = outset;
+        }
+
+        @Override
+        public void run() {
+            //相同的开关排在同一个线程里,前一个生成后直接命中缓存
+            SwitchFrameAtlas atlas = key != null ? cache.getFrameAtlas(key) : null;
+            if (atlas == null) {
+                atlas = createFrameAtlas();
+                //生成期间按钮内容变了,结果不能按旧key共享
+                if (key != null && (thumbPainter.getContentKey() != key.thumbContent
+                        || !cache.putFrameAtlas(key, atlas))) {
+                    atlas.bitmap.recycle();
+                    atlas = null;
+                }
+            }
+            final SwitchFrameAtlas result = atlas;
+            SwitchMainThread.post(new Runnable() {
+                @Override
+                public void run() {
+                    renderer.onFrameAtlasReady(generation, result);
+                }
+            });
+        }
+
+        private SwitchFrameAtlas createFrameAtlas() {
+            int columns = SwitchFrameAtlas.getColumns(frameCount);
+            int rows = (frameCount + columns - 1) / columns;
+            Bitmap bitmap = Bitmap.createBitmap(columns * frameWidth, rows * frameHeight, Bitmap.Config.ARGB_8888);
+            Canvas atlasCanvas = new Canvas(bitmap);
+            for (int i = 0; i < frameCount; i++) {
+                float rate = (float) i / (frameCount - 1);
+                int left = (i % columns) * frameWidth;
+                int top = (i / columns) * frameHeight;
+                int save = atlasCanvas.save();
+                atlasCanvas.clipRect(left, top, left + frameWidth, top + frameHeight);
+                atlasCanvas.translate(left + outset - bounds.left, top + outset - bounds.top);
+                trackPainter.drawTrack(atlasCanvas, bounds, radius, colorTable.getColor(rate));
+                thumbPainter.drawThumb(atlasCanvas, bounds.left + radius + 2 * radius * rate,
+                        bounds.top + radius, thumbRadius, rate);
+                atlasCanvas.restoreToCount(save);
+            }
+            atlasCanvas.setBitmap(null);
+            bitmap.prepareToDraw();
+            return new SwitchFrameAtlas(bitmap, frameCount, frameWidth, frameHeight, columns, outset);
+        }
+    }
+
+    /**
+     * 样式或尺寸变化后,下次绘制时重新生成图层和帧图集
+     */
+    public void invalidateLayers() {
+        layersValid = false;
+        invalidateFrameAtlas();
+    }
+
+    private void invalidateFrameAtlas() {
+        atlasValid = false;
+        atlasPending = false;
+        atlasGeneration++;
+    }
+
+    /**
+     * 释放图层
+     */
+    public void releaseLayers() {
+        layersValid = false;
+        trackLayer = recycle(trackLayer);
+        offThumbLayer = recycle(offThumbLayer);
+        onThumbLayer = recycle(onThumbLayer);
+        invalidateFrameAtlas();
+        //帧图集可能被其他开关共享,只释放引用
+        frameAtlas = null;
+    }
+
+    private static Bitmap recycle(Bitmap bitmap) {
+        if (bitmap != null) {
+            bitmap.recycle();
+        }
+        return null;
+    }
+
+    /**
+     * 设置是否使用图层缓存绘制,开启后每个实例额外持有轨道和按钮图层
+     *
+     * @param layered 是否使用图层
+     */
+    public void setLayered(boolean layered) {
+        if (this.layered != layered) {
+            this.layered = layered;
+            if (!layered) {
+                releaseLayers();
+            }
+        }
+    }
+
+    public boolean isLayered() {
+        return layered;
+    }
+
+    /**
+     * 设置帧图集的帧数。开启后按尺寸和样式预先绘制整个开关的多帧画面,
+     * 每帧只需一次贴图,绘制耗时固定;按钮位置按帧数量化。
+     * 图集在后台线程绘制,完成前按普通方式绘制,完成后调用listener;超过缓存上限时减少帧数
+     *
+     * @param frameCount 帧数,至少为2,0表示关闭
+     * @param cache      共享帧图集的缓存,样式、尺寸和帧数相同的开关共用一张图集;null表示每个实例单独绘制
+     * @param listener   图集生成完成时在主线程调用,通常用来重绘,可为null
+     */
+    public void setFrameAtlas(int frameCount, SwitchBitmapCache cache, Runnable listener) {
+        atlasCache = cache;
+        frameAtlasListener = listener;
+        if (frameCount == 1 || frameCount < 0) {
+            throw new IllegalArgumentException("frameCount must be 0 or at least 2");
+        }
+        if (atlasFrameCount != frameCount) {
+            atlasFrameCount = frameCount;
+            invalidateFrameAtlas();
+            if (frameCount == 0) {
+                frameAtlas = null;
+            }
+        }
+    }
+
+    public int getFrameAtlas() {
+        return atlasFrameCount;
+    }
+
+    /**
+     * 根据比例获取渐变颜色
+     *
+     * @param radio 比例
+     * @return 渐变颜色
+     */
+    public int getColor(float radio) {
+        return colorTable.getColor(radio);
+    }
+
+    /**
+     * 两个移动比例下轨道绘制结果是否不同
+     */
+    public boolean isTrackChanged(float fromRate, float toRate) {
+        if (atlasFrameCount > 0) {
+            //帧图集每次贴整帧
+            return true;
+        }
+        return trackPainter.isColorDependent() && getColor(fromRate) != getColor(toRate);
+    }
+
+    /**
+     * 获取按钮在指定移动比例下的绘制区域,包含抗锯齿边缘
+     *
+     * @param rate 移动比例
+     * @param out  输出区域
+     */
+    public void getThumbBounds(float rate, Rect out) {
+        float cx = getThumbCenterX(rate);
+        float cy = getThumbCenterY();
+        int extent = radius - innerThick + 1;
+        out.set((int) Math.floor(cx - extent), (int) Math.floor(cy - extent),
+                (int) Math.ceil(cx + extent), (int) Math.ceil(cy + extent));
+    }
+
+    public float getThumbCenterX(float rate) {
+        return rectF.left + radius + 2 * radius * rate;
+    }
+
+    public float getThumbCenterY() {
+        return rectF.top + radius;
+    }
+
+    /**
+     * 按钮从关到开移动的距离
+     */
+    public int getThumbTravel() {
+        return radius * 2;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public int getThumbRadius() {
+        return radius - innerThick;
+    }
+
+    public RectF getBounds() {
+        return rectF;
+    }
+
+    public void setColors(int offColor, int onColor) {
+        this.offColor = offColor;
+        this.onColor = onColor;
+        colorTable = SwitchColorTable.obtain(offColor, onColor, colorInterpolation);
+        invalidateLayers();
+    }
+
+    /**
+     * 应用共享样式:颜色、颜色表、内边距和绘制器,样式没有按钮绘制器时保留原来的
+     */
+    public void setStyle(SwitchStyle style) {
+        offColor = style.getOffColor();
+        onColor = style.getOnColor();
+        colorTable = colorInterpolation == SwitchColorTable.INTERPOLATION_LINEAR ? style.getColorTable()
+                : SwitchColorTable.obtain(offColor, onColor, colorInterpolation);
+        innerThick = style.getInnerThick();
+        trackPainter = style.getTrackPainter();
+        if (style.getThumbPainter() != null) {
+            thumbPainter = style.getThumbPainter();
+        }
+        invalidateLayers();
+    }
+
+    /**
+     * 设置颜色插值方式
+     *
+     * @param colorInterpolation {@link SwitchColorTable#INTERPOLATION_LINEAR}等
+     */
+    public void setColorInterpolation(int colorInterpolation) {
+        this.colorInterpolation = colorInterpolation;
+        colorTable = SwitchColorTable.obtain(offColor, onColor, colorInterpolation);
+        invalidateLayers();
+    }
+
+    public void setInnerThick(int innerThick) {
+        this.innerThick = innerThick;
+        invalidateLayers();
+    }
+
+    public void setTrackPainter(SwitchTrackPainter trackPainter) {
+        this.trackPainter = trackPainter;
+        invalidateLayers();
+    }
+
+    public SwitchTrackPainter getTrackPainter() {
+        return trackPainter;
+    }
+
+    public void setThumbPainter(SwitchThumbPainter thumbPainter) {
+        this.thumbPainter = thumbPainter;
+        invalidateLayers();
+    }
+
+    public SwitchThumbPainter getThumbPainter() {
+        return thumbPainter;
+    }
+}
@@ -0,0 +1,92 @@
+package com.parker.uipractice;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * 开关皮肤图集,把同一样式的开按钮和关按钮图片打包到一张位图中,
+ * 由{@link SwitchBitmapCache}按样式共享,绘制时按源区域取图,多个开关只需一张纹理
+ */
+public final class SwitchSkinAtlas {
+
+    /**
+     * 图片之间的间隔,避免过滤采样到相邻图片
+     */
+    private static final int GUTTER = 1;
+
+    private final Bitmap bitmap;
+    private final Rect onRect;
+    private final Rect offRect;
+
+    private SwitchSkinAtlas(Bitmap bitmap, Rect onRect, Rect offRect) {
+        this.bitmap = bitmap;
+        this.onRect = onRect;
+        this.offRect = offRect;
+    }
+
+    /**
+     * 打包图片:开关按钮并排放在一行
+     *
+     * @param on      开按钮图片,可为null
+     * @param off     关按钮图片,可为null
+     * @param density 图集的屏幕密度
+     * @return 图集,两张图片都为null时返回null
+     */
+    static SwitchSkinAtlas pack(Bitmap on, Bitmap off, int density) {
+        Rect onRect = null;
+        Rect offRect = null;
+        int rowWidth = 0;
+        int rowHeight = 0;
+        if (on != null) {
+            onRect = new Rect(0, 0, on.getWidth(), on.getHeight());
+            rowWidth = onRect.right + GUTTER;
+            rowHeight = onRect.bottom;
+        }
+        if (off != null) {
+            offRect = new Rect(rowWidth, 0, rowWidth + off.getWidth(), off.getHeight());
+            rowWidth = offRect.right + GUTTER;
+            rowHeight = Math.max(rowHeight, offRect.bottom);
+        }
+        if (rowWidth <= 0 || rowHeight <= 0) {
+            return null;
+        }
+        Bitmap atlas = Bitmap.createBitmap(rowWidth, rowHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+        draw(canvas, on, onRect, atlas.getDensity());
+        draw(canvas, off, offRect, atlas.getDensity());
+        canvas.setBitmap(null);
+        atlas.setDensity(density);
+        return new SwitchSkinAtlas(atlas, onRect, offRect);
+    }
+
+    private static void draw(Canvas canvas, Bitmap source, Rect rect, int density) {
+        if (source != null) {
+            //密度一致时按像素原样拷贝,不做缩放
+            source.setDensity(density);
+            canvas.drawBitmap(source, rect.left, rect.top, null);
+        }
+    }
+
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * 开按钮在图集中的区域,没有时为null
+     */
+    public Rect getOnRect() {
+        return onRect;
+    }
+
+    /**
+     * 关按钮在图集中的区域,没有时为null
+     */
+    public Rect getOffRect() {
+        return offRect;
+    }
+
+    int getByteCount() {
+        return bitmap.getByteCount();
+    }
+}
@@ -0,0 +1,414 @@
+package com.parker.uipractice;
+
+import android.animation.Animator;
+import android.animation.ValueAnimator;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+
+/**
+ * 开关状态机,负责开关状态、移动比例、触摸拖动和切换动画,
+ * 与具体的绘制方式无关,由各个开关控件共用
+ */
+public class SwitchStateMachine implements SwitchAnimationTicker.Target {
+
+    /**
+     * 切换动画时长
+     */
+    private static final int ANIM_DURATION = 300;
+
+    /**
+     * 点击判定时长,毫秒
+     */
+    private static final int TAP_TIMEOUT = 200;
+
+    /**
+     * 预测位移上限占移动距离的比例
+     */
+    private static final float MAX_PREDICTION_RATE = 0.25f;
+
+    /**
+     * 抬手回弹的弹簧刚度
+     */
+    private static final float SETTLE_STIFFNESS = 400f;
+
+    /**
+     * 速度不足以判定为快速滑动时,按惯性继续移动的时间,秒
+     */
+    private static final float SETTLE_PROJECTION = 0.1f;
+
+    /**
+     * 状态机回调
+     */
+    public interface Callback {
+
+        /**
+         * 移动比例发生变化,需要重绘
+         */
+        void onRateChanged();
+
+        /**
+         * 用户操作导致开关状态变化
+         *
+         * @param switchStatus 开或者关
+         */
+        void onSwitchChange(boolean switchStatus);
+    }
+
+    private final Callback callback;
+
+    /**
+     * 开关状态
+     */
+    private boolean switchStatus = false;
+
+    /**
+     * 上一次的开关状态
+     */
+    private boolean lastStatus;
+
+    /**
+     * 移动比例
+     */
+    private float rate = 0.0f;
+
+    /**
+     * 上次按下的移动比例
+     */
+    private float lastRate;
+
+    /**
+     * 能否切换
+     */
+    private boolean isCanSwitch = true;
+
+    /**
+     * 按下的X坐标
+     */
+    private float startX;
+
+    /**
+     * 按下的Y坐标
+     */
+    private float startY;
+
+    /**
+     * 上次按下的X坐标
+     */
+    private float lastX;
+
+    /**
+     * 按下时间
+     */
+    private long downTime;
+
+    /**
+     * 是否移动
+     */
+    private boolean hasMoved;
+
+    /**
+     * 拖动位置预测
+     */
+    private final SwitchTouchPredictor touchPredictor = new SwitchTouchPredictor();
+
+    /**
+     * 速度追踪,每次手势获取,抬手时回收
+     */
+    private VelocityTracker velocityTracker;
+
+    /**
+     * 判定为快速滑动的最小速度,像素每秒
+     */
+    private float minFlingVelocity = 50;
+
+    /**
+     * 最大速度,像素每秒
+     */
+    private float maxFlingVelocity = 8000;
+
+    public SwitchStateMachine(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * 处理触摸事件
+     *
+     * @param event  触摸事件
+     * @param travel 按钮从关到开移动的距离
+     * @return 是否消费
+     */
+    public boolean onTouchEvent(MotionEvent event, float travel) {
+        if (!isCanSwitch) {
+            return true;
+        }
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                startX = event.getX();
+                startY = event.getY();
+                lastX = startX;
+                downTime = event.getEventTime();
+                touchPredictor.reset();
+                touchPredictor.addMovement(event);
+                if (velocityTracker == null) {
+                    velocityTracker = VelocityTracker.obtain();
+                } else {
+                    velocityTracker.clear();
+                }
+                velocityTracker.addMovement(event);
+                lastRate = rate;
+                lastStatus = switchStatus;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                touchPredictor.addMovement(event);
+                if (velocityTracker != null) {
+                    velocityTracker.addMovement(event);
+                }
+                float xMove = event.getX();
+                float yMove = event.getY();
+                if (Math.abs(xMove - startX) < 10 &&
+                        Math.abs(yMove - startY) < 10) {
+                    hasMoved = false;
+                    break;
+                }
+                if (travel <= 0) {
+                    break;
+                }
+                if (!hasMoved && SwitchAnimationTicker.getInstance().isAnimating(this, 0)) {
+                    //拖动打断进行中的动画,从当前位置开始拖
+                    SwitchAnimationTicker.getInstance().cancel(this, 0);
+                    lastRate = rate;
+                }
+                lastX = xMove;
+                hasMoved = true;
+                //按预测的手指位置移动按钮,减少跟手延迟
+                updateDragRate(touchPredictor.predictX(travel * MAX_PREDICTION_RATE), travel);
+                callback.onRateChanged();
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (hasMoved) {
+                    hasMoved = false;
+                    //抬起时以实际位置为准
+                    if (travel > 0) {
+                        updateDragRate(event.getX(), travel);
+                        settle(event, travel);
+                    }
+                    if (lastStatus != switchStatus) {
+                        callback.onSwitchChange(switchStatus);
+                    }
+                } else {
+                    //点击事件
+                    long pressTime = event.getEventTime();
+                    if (pressTime - downTime < TAP_TIMEOUT) {
+                        setSwitchStatus(!switchStatus, true);
+                        callback.onSwitchChange(switchStatus);
+                    }
+                }
+                releaseVelocityTracker();
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * 拖动结束,根据抬手速度决定开关状态,并用弹簧动画回到终点。
+     * 快速滑动时按滑动方向,否则按惯性继续移动一小段后的位置是否过半
+     */
+    private void settle(MotionEvent event, float travel) {
+        float velocity = 0;
+        if (velocityTracker != null) {
+            velocityTracker.addMovement(event);
+            velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+            velocity = velocityTracker.getXVelocity();
+        }
+        boolean target;
+        if (Math.abs(velocity) >= minFlingVelocity && event.getAction() == MotionEvent.ACTION_UP) {
+            target = velocity > 0;
+        } else {
+            target = rate + velocity / travel * SETTLE_PROJECTION >= 0.5f;
+        }
+        switchStatus = target;
+        float targetRate = target ? 1.0f : 0.0f;
+        if (rate != targetRate) {
+            SwitchAnimationTicker.getInstance().spring(this, 0, rate, targetRate, velocity / travel, SETTLE_STIFFNESS);
+        }
+        callback.onRateChanged();
+    }
+
+    private void releaseVelocityTracker() {
+        if (velocityTracker != null) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+    }
+
+    /**
+     * 设置快速滑动的速度范围
+     *
+     * @param minFlingVelocity 判定为快速滑动的最小速度,像素每秒
+     * @param maxFlingVelocity 最大速度,像素每秒
+     */
+    public void setFlingVelocity(float minFlingVelocity, float maxFlingVelocity) {
+        this.minFlingVelocity = minFlingVelocity;
+        this.maxFlingVelocity = maxFlingVelocity;
+    }
+
+    /**
+     * 根据手指位置更新拖动比例,到达两端时更新开关状态
+     */
+    private void updateDragRate(float x, float travel) {
+        rate = lastRate + (x - startX) / travel;
+        if (rate > 1) {
+            rate = 1;
+            switchStatus = true;
+        }
+        if (rate < 0) {
+            rate = 0;
+            switchStatus = false;
+        }
+    }
+
+    /**
+     * 设置拖动预测时长,0表示不预测
+     *
+     * @param predictionTime 毫秒
+     */
+    public void setTouchPredictionTime(int predictionTime) {
+        touchPredictor.setPredictionTime(predictionTime);
+    }
+
+    /**
+     * 设置开关的状态
+     *
+     * @param switchStatus 开或者关
+     */
+    public void setSwitchStatus(boolean switchStatus) {
+        if (this.switchStatus != switchStatus) {
+            SwitchAnimationTicker.getInstance().cancel(this, 0);
+            this.switchStatus = switchStatus;
+            rate = switchStatus ? 1.0f : 0.0f;
+            callback.onRateChanged();
+        }
+    }
+
+    /**
+     * 切换开关状态
+     *
+     * @param switchStatus  开或者关
+     * @param isSingleClick 是否点击
+     */
+    public void setSwitchStatus(boolean switchStatus, boolean isSingleClick) {
+        setSwitchStatus(switchStatus, isSingleClick, 0);
+    }
+
+    /**
+     * 切换开关状态,动画可延迟开始
+     *
+     * @param switchStatus 开或者关
+     * @param animate      是否动画
+     * @param startDelay   动画延迟,毫秒
+     */
+    public void setSwitchStatus(boolean switchStatus, boolean animate, int startDelay) {
+        if (this.switchStatus != switchStatus) {
+            this.switchStatus = switchStatus;
+            float target = switchStatus ? 1.0f : 0.0f;
+            if (animate) {
+                //动画进行中时从当前位置转向
+                SwitchAnimationTicker.getInstance().animate(this, 0, rate, target, ANIM_DURATION, startDelay);
+            } else {
+                SwitchAnimationTicker.getInstance().cancel(this, 0);
+                rate = target;
+                callback.onRateChanged();
+            }
+        }
+    }
+
+    @Override
+    public void onAnimationUpdate(int index, float curValue) {
+        //弹簧回弹可能越过终点,按钮不能超出轨道
+        rate = Math.max(0f, Math.min(1f, curValue));
+        callback.onRateChanged();
+    }
+
+    @Override
+    public void onAnimationFinish(int index) {
+        rate = switchStatus ? 1.0f : 0.0f;
+        callback.onRateChanged();
+    }
+
+    /**
+     * 初始化开关状态,不回调
+     *
+     * @param switchStatus 开或者关
+     */
+    public void initSwitchStatus(boolean switchStatus) {
+        this.switchStatus = switchStatus;
+        rate = switchStatus ? 1.0f : 0.0f;
+    }
+
+    /**
+     * 获取当前更新的值,开关内部已改用{@link SwitchAnimationTicker}
+     *
+     * @param startValue
+     * @param endValue
+     * @param duration
+     * @param onAnimUpdateListener
+     */
+    public static ValueAnimator valueAnimator(float startValue, float endValue, int duration, final BaseSwitchView.OnAnimUpdateListener onAnimUpdateListener) {
+        ValueAnimator valueAnimator = ValueAnimator.ofFloat(startValue, endValue);
+        valueAnimator.setDuration(duration);
+        valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+
+            @Override
+            public void onAnimationUpdate(ValueAnimator animator) {
+                float currentValue = (Float) animator.getAnimatedValue();
+                onAnimUpdateListener.onAnimationUpdate(currentValue);
+            }
+        });
+        valueAnimator.addListener(new Animator.AnimatorListener() {
+            @Override
+            public void onAnimationStart(Animator animator) {
+
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animator) {
+                onAnimUpdateListener.onAnimationFinish();
+            }
+
+            @Override
+            public void onAnimationCancel(Animator animator) {
+
+            }
+
+            @Override
+            public void onAnimationRepeat(Animator animator) {
+
+            }
+        });
+        return valueAnimator;
+    }
+
+    public void setCanSwitch(boolean canSwitch) {
+        isCanSwitch = canSwitch;
+    }
+
+    public boolean isCanSwitch() {
+        return isCanSwitch;
+    }
+
+    public boolean getSwitchStatus() {
+        return switchStatus;
+    }
+
+    /**
+     * 是否正在动画
+     */
+    public boolean isAnimating() {
+        return SwitchAnimationTicker.getInstance().isAnimating(this, 0);
+    }
+
+    public float getRate() {
+        return rate;
+    }
+}
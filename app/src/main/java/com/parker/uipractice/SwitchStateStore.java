@@ -0,0 +1,493 @@
+package com.parker.uipractice;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * 开关状态持久化,替代每次切换都整体重写SharedPreferences。
+ * 状态变化追加写入内存映射的日志文件,只是一次内存拷贝;后台线程在限定时间内批量同步到磁盘,
+ * 日志过长时压缩成每个key一条记录。启动时顺序读一遍日志,重建成key序号到{@link BitSet}的映射
+ * <p>
+ * 日志格式:文件头(魔数、版本),之后是记录:
+ * 定义key {@link #OP_KEY} + 长度(short) + UTF-8字节,按出现顺序编号;
+ * 状态 {@link #OP_ON}/{@link #OP_OFF} + key序号(int)。操作码最后写入,进程崩溃时不会读到半条记录
+ */
+public final class SwitchStateStore {
+
+    private static final int MAGIC = 0x53575354;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte OP_END = 0;
+    private static final byte OP_KEY = 1;
+    private static final byte OP_ON = 2;
+    private static final byte OP_OFF = 3;
+
+    /**
+     * 状态记录长度
+     */
+    private static final int VALUE_RECORD_SIZE = 5;
+
+    /**
+     * 日志初始映射大小
+     */
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    /**
+     * 日志超过这个大小且超过有效内容的{@link #COMPACT_RATIO}倍时压缩
+     */
+    private static final int MIN_COMPACT_SIZE = 64 * 1024;
+    private static final int COMPACT_RATIO = 4;
+
+    /**
+     * 默认同步间隔,毫秒
+     */
+    public static final long DEFAULT_FLUSH_DELAY = 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+
+    /**
+     * key到序号
+     */
+    private final HashMap<String, Integer> indices = new HashMap<>();
+
+    /**
+     * 按序号排列的key
+     */
+    private final ArrayList<String> keys = new ArrayList<>();
+
+    /**
+     * 按序号排列的开关状态
+     */
+    private final BitSet values = new BitSet();
+
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer journal;
+
+    /**
+     * 下一条记录的写入位置
+     */
+    private int position;
+
+    /**
+     * 压缩后日志的有效长度
+     */
+    private int liveSize;
+
+    private final HandlerThread flushThread;
+    private final Handler flushHandler;
+    private long flushDelay = DEFAULT_FLUSH_DELAY;
+    private boolean flushScheduled;
+
+    /**
+     * 是否有线程正在后台写压缩文件
+     */
+    private boolean compacting;
+
+    /**
+     * 最近一次写入失败的原因,失败后只保留内存中的状态
+     */
+    private IOException error;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private SwitchStateStore(File file) throws IOException {
+        this.file = file;
+        try {
+            load();
+        } catch (IOException | RuntimeException e) {
+            closeJournal();
+            throw e;
+        }
+        flushThread = new HandlerThread("SwitchStateStore", Process.THREAD_PRIORITY_BACKGROUND);
+        flushThread.start();
+        flushHandler = new Handler(flushThread.getLooper());
+    }
+
+    /**
+     * 打开状态存储,会读取整个日志,建议在后台线程调用
+     *
+     * @param context 上下文
+     * @param name    文件名,位于应用的files目录
+     */
+    public static SwitchStateStore open(Context context, String name) throws IOException {
+        return new SwitchStateStore(new File(context.getFilesDir(), name));
+    }
+
+    /**
+     * 设置同步到磁盘的最长延迟
+     *
+     * @param flushDelay 毫秒
+     */
+    public synchronized void setFlushDelay(long flushDelay) {
+        this.flushDelay = flushDelay;
+    }
+
+    /**
+     * 获取开关状态
+     *
+     * @param key          开关key
+     * @param defaultValue 没有保存过时的默认值
+     */
+    public synchronized boolean get(String key, boolean defaultValue) {
+        Integer index = indices.get(key);
+        return index != null ? values.get(index) : defaultValue;
+    }
+
+    /**
+     * 保存开关状态,只追加一条日志记录,稍后批量同步到磁盘
+     *
+     * @param key          开关key
+     * @param switchStatus 开或者关
+     */
+    public synchronized void put(String key, boolean switchStatus) {
+        Integer index = indices.get(key);
+        if (index != null && values.get(index) == switchStatus) {
+            return;
+        }
+        if (index == null) {
+            index = keys.size();
+            keys.add(key);
+            indices.put(key, index);
+            appendKey(key);
+        }
+        values.set(index, switchStatus);
+        appendValue(index, switchStatus);
+        scheduleFlush();
+    }
+
+    /**
+     * 绑定开关:立即恢复保存的状态,之后用户切换时自动保存
+     *
+     * @param switchView   开关
+     * @param key          开关key
+     * @param defaultValue 没有保存过时的默认值
+     */
+    public void bind(BaseSwitchView switchView, String key, boolean defaultValue) {
+        switchView.setSwitchStatus(get(key, defaultValue));
+        switchView.setStateStore(this, key);
+    }
+
+    /**
+     * 解除绑定
+     */
+    public void unbind(BaseSwitchView switchView) {
+        if (switchView.getStateStore() == this) {
+            switchView.setStateStore(null, null);
+        }
+    }
+
+    /**
+     * 立即把日志同步到磁盘,日志过长时顺便压缩,可在任意线程调用。
+     * 同步和写压缩文件都不持有锁,主线程写入不会等待磁盘
+     */
+    public void flush() {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            flushHandler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+            buffer = journal;
+        }
+        if (buffer == null) {
+            return;
+        }
+        buffer.force();
+
+        ByteBuffer snapshot;
+        int snapshotPosition;
+        synchronized (this) {
+            if (journal == null || compacting
+                    || position <= MIN_COMPACT_SIZE || position <= COMPACT_RATIO * liveSize) {
+                return;
+            }
+            compacting = true;
+            snapshot = snapshot();
+            snapshotPosition = position;
+        }
+        File compactFile = null;
+        IOException failure = null;
+        try {
+            compactFile = writeCompactFile(snapshot);
+        } catch (IOException e) {
+            failure = e;
+        }
+        synchronized (this) {
+            compacting = false;
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (journal == null) {
+                    //写压缩文件期间已关闭或出错,原日志仍然完整
+                    compactFile.delete();
+                    return;
+                }
+                replaceJournal(compactFile, snapshot.limit(), snapshotPosition);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * 同步并关闭,之后的修改只保存在内存中
+     */
+    public void close() {
+        flush();
+        synchronized (this) {
+            closeJournal();
+        }
+        flushThread.quit();
+    }
+
+    /**
+     * 最近一次写入失败的原因,没有失败时为null
+     */
+    public synchronized IOException getError() {
+        return error;
+    }
+
+    /**
+     * 顺序读取日志重建状态
+     */
+    private void load() throws IOException {
+        boolean exists = file.exists() && file.length() >= HEADER_SIZE;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        int capacity = (int) Math.max(INITIAL_CAPACITY, randomAccessFile.length());
+        journal = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (!exists || journal.getInt(0) != MAGIC || journal.getInt(4) != VERSION) {
+            keys.clear();
+            indices.clear();
+            values.clear();
+            compact();
+            return;
+        }
+        int offset = HEADER_SIZE;
+        while (offset < capacity) {
+            byte op = journal.get(offset);
+            if (op == OP_KEY) {
+                if (offset + 3 > capacity) {
+                    break;
+                }
+                int length = journal.getShort(offset + 1) & 0xFFFF;
+                if (offset + 3 + length > capacity) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = journal.get(offset + 3 + i);
+                }
+                String key = new String(bytes, UTF_8);
+                indices.put(key, keys.size());
+                keys.add(key);
+                offset += 3 + length;
+            } else if (op == OP_ON || op == OP_OFF) {
+                if (offset + VALUE_RECORD_SIZE > capacity) {
+                    break;
+                }
+                int index = journal.getInt(offset + 1);
+                if (index < 0 || index >= keys.size()) {
+                    break;
+                }
+                values.set(index, op == OP_ON);
+                offset += VALUE_RECORD_SIZE;
+            } else {
+                break;
+            }
+        }
+        position = offset;
+        liveSize = computeLiveSize();
+        //停在半条记录上,或日志明显过长时重写一份干净的
+        if ((position < capacity && journal.get(position) != OP_END)
+                || (position > MIN_COMPACT_SIZE && position > COMPACT_RATIO * liveSize)) {
+            compact();
+        }
+    }
+
+    private void appendKey(String key) {
+        byte[] bytes = key.getBytes(UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("key is too long");
+        }
+        if (!ensureCapacity(3 + bytes.length)) {
+            return;
+        }
+        journal.putShort(position + 1, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            journal.put(position + 3 + i, bytes[i]);
+        }
+        journal.put(position, OP_KEY);
+        position += 3 + bytes.length;
+        liveSize += 3 + bytes.length + VALUE_RECORD_SIZE;
+    }
+
+    private void appendValue(int index, boolean switchStatus) {
+        if (!ensureCapacity(VALUE_RECORD_SIZE)) {
+            return;
+        }
+        journal.putInt(position + 1, index);
+        journal.put(position, switchStatus ? OP_ON : OP_OFF);
+        position += VALUE_RECORD_SIZE;
+    }
+
+    /**
+     * 日志空间不够时扩大映射,压缩只在同步时进行
+     *
+     * @return 能否写入
+     */
+    private boolean ensureCapacity(int recordSize) {
+        if (journal == null) {
+            return false;
+        }
+        //保留一个字节给结束标记
+        if (position + recordSize < journal.capacity()) {
+            return true;
+        }
+        try {
+            int capacity = journal.capacity();
+            while (position + recordSize >= capacity) {
+                capacity *= 2;
+            }
+            //同一个文件重新映射,已写入的内容还在页缓存里,不需要先同步
+            journal = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return true;
+        } catch (IOException e) {
+            fail(e);
+            return false;
+        }
+    }
+
+    /**
+     * 在当前线程压缩日志,只在打开时使用
+     */
+    private void compact() throws IOException {
+        ByteBuffer snapshot = snapshot();
+        replaceJournal(writeCompactFile(snapshot), snapshot.limit(), position);
+        liveSize = snapshot.limit();
+    }
+
+    /**
+     * 把当前状态写成新日志的内容,每个key一条定义和一条状态,需持有锁
+     */
+    private ByteBuffer snapshot() {
+        int size = computeLiveSize();
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] bytes = keys.get(i).getBytes(UTF_8);
+            buffer.put(OP_KEY);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            buffer.put(values.get(i) ? OP_ON : OP_OFF);
+            buffer.putInt(i);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 写入压缩文件并同步到磁盘,不需要持有锁
+     */
+    private File writeCompactFile(ByteBuffer buffer) throws IOException {
+        File compactFile = new File(file.getPath() + ".compact");
+        RandomAccessFile compactOut = new RandomAccessFile(compactFile, "rw");
+        try {
+            compactOut.setLength(0);
+            FileChannel channel = compactOut.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } finally {
+            compactOut.close();
+        }
+        return compactFile;
+    }
+
+    /**
+     * 用压缩文件替换日志,并补上生成快照之后追加的记录,需持有锁。
+     * key按原顺序编号,追加的记录在新日志里仍然有效
+     *
+     * @param compactFile 压缩文件
+     * @param size        压缩文件长度
+     * @param replayFrom  快照时的写入位置
+     */
+    private void replaceJournal(File compactFile, int size, int replayFrom) throws IOException {
+        byte[] replay = new byte[position - replayFrom];
+        if (replay.length > 0) {
+            ByteBuffer source = journal.duplicate();
+            source.position(replayFrom);
+            source.get(replay);
+        }
+        closeJournal();
+        if (!compactFile.renameTo(file)) {
+            throw new IOException("rename " + compactFile + " failed");
+        }
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        int capacity = INITIAL_CAPACITY;
+        while (capacity <= 2 * (size + replay.length)) {
+            capacity *= 2;
+        }
+        journal = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (replay.length > 0) {
+            ByteBuffer target = journal.duplicate();
+            target.position(size);
+            target.put(replay);
+        }
+        position = size + replay.length;
+    }
+
+    private int computeLiveSize() {
+        int size = HEADER_SIZE;
+        for (int i = 0; i < keys.size(); i++) {
+            size += 3 + keys.get(i).getBytes(UTF_8).length + VALUE_RECORD_SIZE;
+        }
+        return size;
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled && journal != null) {
+            flushScheduled = true;
+            flushHandler.postDelayed(flushRunnable, flushDelay);
+        }
+    }
+
+    private void fail(IOException e) {
+        error = e;
+        closeJournal();
+    }
+
+    private void closeJournal() {
+        journal = null;
+        if (randomAccessFile != null) {
+            try {
+                randomAccessFile.close();
+            } catch (IOException ignored) {
+            }
+            randomAccessFile = null;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.parker.uipractice;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * 解析后的开关样式,不可变。按主题和布局中显式设置的属性驻留,
+ * 相同的开关共用一个样式,画笔和颜色表随样式一起共享;切换主题后每种样式只重新解析一次
+ */
+public final class SwitchStyle {
+
+    /**
+     * 纯色开关{@link SwitchView}
+     */
+    public static final int TYPE_SOLID = 0;
+
+    /**
+     * 渐变按钮开关{@link GradientSwitchView}
+     */
+    public static final int TYPE_GRADIENT = 1;
+
+    /**
+     * 图片按钮开关{@link SwitchButton}
+     */
+    public static final int TYPE_BUTTON = 2;
+
+    /**
+     * 每个主题下已解析的样式,主题回收后一起释放
+     */
+    private static final WeakHashMap<Resources.Theme, HashMap<String, SwitchStyle>> sStyles = new WeakHashMap<>();
+
+    private final int onColor;
+    private final int offColor;
+    private final int buttonBgColor;
+    private final int borderColor;
+    private final int borderSize;
+    private final int innerThick;
+    private final boolean switchStatus;
+    private final int onResourceId;
+    private final int offResourceId;
+    private final int backgroundResourceId;
+    private final SwitchColorTable colorTable;
+    private final SwitchTrackPainter trackPainter;
+    private final SwitchThumbPainter thumbPainter;
+
+    private SwitchStyle(Context context, TypedArray a, int type) {
+        if (type == TYPE_BUTTON) {
+            onColor = a.getColor(R.styleable.SwitchButton_on_color, 0xFF32C781);
+            offColor = a.getColor(R.styleable.SwitchButton_off_color, 0xFFC9C9C9);
+            buttonBgColor = a.getColor(R.styleable.SwitchButton_button_bg_color, 0xFFFFFFFF);
+            switchStatus = a.getBoolean(R.styleable.SwitchButton_switch_status, true);
+            borderColor = a.getColor(R.styleable.SwitchButton_border_color, 0xFFFFFFFF);
+            borderSize = a.getDimensionPixelSize(R.styleable.SwitchButton_border_size, 1);
+            innerThick = a.getDimensionPixelSize(R.styleable.SwitchButton_inner_thick, 0);
+            backgroundResourceId = a.getResourceId(R.styleable.SwitchButton_switch_background, -1);
+            onResourceId = a.getResourceId(R.styleable.SwitchButton_switch_on_background, -1);
+            offResourceId = a.getResourceId(R.styleable.SwitchButton_switch_off_background, -1);
+            trackPainter = BorderTrackPainter.obtain(borderColor, borderSize, onColor);
+            //图片按钮每个实例单独持有
+            thumbPainter = null;
+        } else {
+            onColor = a.getColor(R.styleable.SwitchView_on_color, 0xFF32C781);
+            offColor = a.getColor(R.styleable.SwitchView_off_color, 0xFFC9C9C9);
+            buttonBgColor = a.getColor(R.styleable.SwitchView_button_bg_color, 0xFFFFFFFF);
+            switchStatus = a.getBoolean(R.styleable.SwitchView_switch_status, true);
+            borderColor = 0;
+            borderSize = 0;
+            innerThick = SwitchRenderer.DEFAULT_INNER_THICK;
+            backgroundResourceId = -1;
+            onResourceId = -1;
+            offResourceId = -1;
+            trackPainter = SolidTrackPainter.getInstance();
+            if (type == TYPE_GRADIENT) {
+                Resources res = context.getResources();
+                thumbPainter = GradientThumbPainter.obtain(res.getColor(R.color.color_gradient_start),
+                        res.getColor(R.color.color_gradient_end));
+            } else {
+                thumbPainter = SolidThumbPainter.obtain(buttonBgColor);
+            }
+        }
+        colorTable = SwitchColorTable.obtain(offColor, onColor, SwitchColorTable.INTERPOLATION_LINEAR);
+    }
+
+    /**
+     * 获取布局属性对应的样式
+     *
+     * @param context 上下文,决定主题
+     * @param attrs   布局属性,可为null
+     * @param type    {@link #TYPE_SOLID}等
+     */
+    public static SwitchStyle obtain(Context context, AttributeSet attrs, int type) {
+        int[] styleable = type == TYPE_BUTTON ? R.styleable.SwitchButton : R.styleable.SwitchView;
+        String key = buildKey(context, attrs, type, styleable);
+        Resources.Theme theme = context.getTheme();
+        synchronized (sStyles) {
+            HashMap<String, SwitchStyle> styles = sStyles.get(theme);
+            if (styles == null) {
+                styles = new HashMap<>();
+                sStyles.put(theme, styles);
+            }
+            SwitchStyle style = styles.get(key);
+            if (style == null) {
+                TypedArray a = context.obtainStyledAttributes(attrs, styleable);
+                style = new SwitchStyle(context, a, type);
+                a.recycle();
+                styles.put(key, style);
+            }
+            return style;
+        }
+    }
+
+    /**
+     * 解析样式资源,不驻留。开关按Activity主题和布局属性驻留,这里解析出的样式不会被开关复用,
+     * 只用于预热画笔、颜色表和图集这些按值共享的资源
+     *
+     * @param context  上下文,决定主题
+     * @param styleRes style资源
+     * @param type     {@link #TYPE_SOLID}等
+     */
+    static SwitchStyle resolve(Context context, int styleRes, int type) {
+        int[] styleable = type == TYPE_BUTTON ? R.styleable.SwitchButton : R.styleable.SwitchView;
+        TypedArray a = context.obtainStyledAttributes(styleRes, styleable);
+        SwitchStyle style = new SwitchStyle(context, a, type);
+        a.recycle();
+        return style;
+    }
+
+    /**
+     * 样式key:类型、配置,以及布局中的style和显式设置的属性原始值。
+     * 原始值里的引用由主题和配置解析,二者不变时解析结果也不变
+     */
+    private static String buildKey(Context context, AttributeSet attrs, int type, int[] styleable) {
+        Configuration config = context.getResources().getConfiguration();
+        StringBuilder key = new StringBuilder();
+        key.append(type).append('|').append(config.uiMode).append('|').append(config.densityDpi);
+        if (attrs != null) {
+            key.append('|').append(attrs.getStyleAttribute());
+            for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+                int nameResource = attrs.getAttributeNameResource(i);
+                if (contains(styleable, nameResource)) {
+                    key.append('|').append(nameResource).append('=').append(attrs.getAttributeValue(i));
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean contains(int[] array, int value) {
+        for (int item : array) {
+            if (item == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 清空已解析的样式,下次获取时重新解析
+     */
+    public static void clearCache() {
+        synchronized (sStyles) {
+            sStyles.clear();
+        }
+    }
+
+    public int getOnColor() {
+        return onColor;
+    }
+
+    public int getOffColor() {
+        return offColor;
+    }
+
+    public int getButtonBgColor() {
+        return buttonBgColor;
+    }
+
+    public int getBorderColor() {
+        return borderColor;
+    }
+
+    public int getBorderSize() {
+        return borderSize;
+    }
+
+    public int getInnerThick() {
+        return innerThick;
+    }
+
+    /**
+     * 布局中设置的初始开关状态
+     */
+    public boolean getSwitchStatus() {
+        return switchStatus;
+    }
+
+    public int getOnResourceId() {
+        return onResourceId;
+    }
+
+    public int getOffResourceId() {
+        return offResourceId;
+    }
+
+    public int getBackgroundResourceId() {
+        return backgroundResourceId;
+    }
+
+    public SwitchColorTable getColorTable() {
+        return colorTable;
+    }
+
+    public SwitchTrackPainter getTrackPainter() {
+        return trackPainter;
+    }
+
+    /**
+     * 按钮绘制器,图片按钮开关为null
+     */
+    public SwitchThumbPainter getThumbPainter() {
+        return thumbPainter;
+    }
+}
@@ -0,0 +1,27 @@
+package com.parker.uipractice;
+
+import android.graphics.Canvas;
+
+/**
+ * 开关按钮(圆形滑块)绘制
+ */
+public interface SwitchThumbPainter {
+
+    /**
+     * 绘制按钮。生成帧图集时会在后台线程调用,修改画笔等共享状态的实现需要同步
+     *
+     * @param canvas 画布
+     * @param cx     圆心X坐标
+     * @param cy     圆心Y坐标
+     * @param radius 按钮半径
+     * @param rate   移动比例
+     */
+    void drawThumb(Canvas canvas, float cx, float cy, int radius, float rate);
+
+    /**
+     * 绘制内容的标识,内容相同的绘制器返回同一个对象,用于共享预先绘制的帧图集
+     *
+     * @return 内容还未准备好时返回null,此时不共享
+     */
+    Object getContentKey();
+}
@@ -0,0 +1,121 @@
+package com.parker.uipractice;
+
+import android.view.MotionEvent;
+
+/**
+ * 拖动位置预测,利用MotionEvent批量携带的历史采样点和事件时间,
+ * 用最近一小段时间内的采样做最小二乘拟合,估计下一次垂直同步时手指的位置
+ */
+public class SwitchTouchPredictor {
+
+    /**
+     * 保留的采样数
+     */
+    private static final int SAMPLE_COUNT = 8;
+
+    /**
+     * 参与拟合的采样时间窗口,毫秒
+     */
+    private static final long SAMPLE_WINDOW = 40;
+
+    /**
+     * 默认预测时长,毫秒
+     */
+    public static final int DEFAULT_PREDICTION_TIME = 8;
+
+    private final long[] times = new long[SAMPLE_COUNT];
+    private final float[] positions = new float[SAMPLE_COUNT];
+
+    /**
+     * 已记录的采样总数
+     */
+    private int count;
+
+    /**
+     * 预测时长,毫秒
+     */
+    private int predictionTime = DEFAULT_PREDICTION_TIME;
+
+    /**
+     * 清空采样,手指按下时调用
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * 记录事件的所有历史采样和当前采样
+     */
+    public void addMovement(MotionEvent event) {
+        int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            addSample(event.getHistoricalEventTime(h), event.getHistoricalX(h));
+        }
+        addSample(event.getEventTime(), event.getX());
+    }
+
+    private void addSample(long time, float x) {
+        int i = count % SAMPLE_COUNT;
+        times[i] = time;
+        positions[i] = x;
+        count++;
+    }
+
+    /**
+     * 预测预测时长之后的X坐标,采样不足时返回最后一个采样
+     *
+     * @param maxDistance 预测位移的上限,避免抖动时冲出过远
+     */
+    public float predictX(float maxDistance) {
+        if (count == 0) {
+            return 0;
+        }
+        int last = (count - 1) % SAMPLE_COUNT;
+        float lastX = positions[last];
+        long lastTime = times[last];
+        int available = Math.min(count, SAMPLE_COUNT);
+        if (available < 2 || predictionTime <= 0) {
+            return lastX;
+        }
+        //以最后一个采样为原点做最小二乘,求速度
+        float sumT = 0;
+        float sumX = 0;
+        float sumTT = 0;
+        float sumTX = 0;
+        int n = 0;
+        for (int k = 0; k < available; k++) {
+            int i = (count - 1 - k) % SAMPLE_COUNT;
+            long dt = times[i] - lastTime;
+            if (-dt > SAMPLE_WINDOW) {
+                break;
+            }
+            float dx = positions[i] - lastX;
+            sumT += dt;
+            sumX += dx;
+            sumTT += dt * dt;
+            sumTX += dt * dx;
+            n++;
+        }
+        float denominator = n * sumTT - sumT * sumT;
+        if (n < 2 || denominator == 0) {
+            return lastX;
+        }
+        float velocity = (n * sumTX - sumT * sumX) / denominator;
+        float distance = velocity * predictionTime;
+        if (distance > maxDistance) {
+            distance = maxDistance;
+        } else if (distance < -maxDistance) {
+            distance = -maxDistance;
+        }
+        return lastX + distance;
+    }
+
+    /**
+     * 设置预测时长,0表示不预测
+     *
+     * @param predictionTime 毫秒
+     */
+    public void setPredictionTime(int predictionTime) {
+        this.predictionTime = predictionTime;
+    }
+}
@@ -0,0 +1,101 @@
+package com.parker.uipractice;
+
+import android.util.Log;
+
+/**
+ * 开关调试追踪,只在{@link BuildConfig#SWITCH_TRACE}打开时生效。
+ * 调用处需用{@code if (SwitchTrace.ENABLED)}包裹,关闭时整段代码在编译期被移除;
+ * 打开时事件写入预分配的环形缓冲区,不输出日志也不拼接字符串,需要时再用{@link #dump()}打印
+ */
+public final class SwitchTrace {
+
+    /**
+     * 是否开启追踪,编译期常量
+     */
+    public static final boolean ENABLED = BuildConfig.SWITCH_TRACE;
+
+    /**
+     * 测量
+     */
+    public static final int EVENT_MEASURE = 0;
+
+    /**
+     * 绘制一帧
+     */
+    public static final int EVENT_DRAW = 1;
+
+    /**
+     * 触摸
+     */
+    public static final int EVENT_TOUCH = 2;
+
+    /**
+     * 开关状态变化
+     */
+    public static final int EVENT_STATUS = 3;
+
+    private static final String[] EVENT_NAMES = {"measure", "draw", "touch", "status"};
+
+    private static final String TAG = "SwitchTrace";
+
+    /**
+     * 缓冲区容量,必须是2的幂
+     */
+    private static final int CAPACITY = 512;
+
+    private static final long[] times = new long[CAPACITY];
+    private static final long[] durations = new long[CAPACITY];
+    private static final int[] events = new int[CAPACITY];
+    private static final int[] sources = new int[CAPACITY];
+    private static final float[] rates = new float[CAPACITY];
+    private static final int[] values = new int[CAPACITY];
+
+    /**
+     * 已写入的事件总数
+     */
+    private static int written;
+
+    private SwitchTrace() {
+    }
+
+    /**
+     * 记录一个事件,只能在主线程调用
+     *
+     * @param event    事件类型
+     * @param source   事件来源,一般传开关本身
+     * @param start    开始时间,{@link System#nanoTime()}
+     * @param duration 耗时,纳秒
+     * @param rate     移动比例
+     * @param value    附加值,如开关状态、触摸动作或测量尺寸
+     */
+    public static void record(int event, Object source, long start, long duration, float rate, int value) {
+        int i = written & (CAPACITY - 1);
+        times[i] = start;
+        durations[i] = duration;
+        events[i] = event;
+        sources[i] = System.identityHashCode(source);
+        rates[i] = rate;
+        values[i] = value;
+        written++;
+    }
+
+    /**
+     * 清空缓冲区
+     */
+    public static void clear() {
+        written = 0;
+    }
+
+    /**
+     * 打印缓冲区内的事件,用于调试,不要在绘制路径调用
+     */
+    public static void dump() {
+        int count = Math.min(written, CAPACITY);
+        for (int n = written - count; n < written; n++) {
+            int i = n & (CAPACITY - 1);
+            Log.d(TAG, EVENT_NAMES[events[i]] + " source:" + Integer.toHexString(sources[i])
+                    + ",time:" + times[i] + ",duration:" + durations[i]
+                    + ",rate:" + rates[i] + ",value:" + values[i]);
+        }
+    }
+}
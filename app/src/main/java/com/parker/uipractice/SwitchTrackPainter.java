@@ -0,0 +1,31 @@
+package com.parker.uipractice;
+
+import android.graphics.Canvas;
+import android.graphics.RectF;
+
+/**
+ * 开关轨道(背景圆角矩形)绘制
+ */
+public interface SwitchTrackPainter {
+
+    /**
+     * 绘制轨道。生成帧图集时会在后台线程调用,修改画笔等共享状态的实现需要同步
+     *
+     * @param canvas 画布
+     * @param rectF  轨道区域
+     * @param radius 圆角半径
+     * @param color  当前移动比例对应的背景色
+     */
+    void drawTrack(Canvas canvas, RectF rectF, float radius, int color);
+
+    /**
+     * 绘制内容超出轨道区域的距离,如描边的一半
+     */
+    int getOutset();
+
+    /**
+     * 绘制结果是否随背景色变化,不变时移动按钮不需要重绘轨道。
+     * 返回true时只能用传入的颜色绘制,图层模式会把轨道存成遮罩再按颜色着色
+     */
+    boolean isColorDependent();
+}
@@ -0,0 +1,269 @@
+package com.parker.uipractice;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * 开关测量、绘制和拖动热路径的性能基准,在JVM上运行。
+ * 输出每次操作的耗时和分配字节数,分配超过基线时失败;绘制不允许有任何分配。
+ * 只在关闭追踪的release变体中运行,结果不含追踪的开销
+ *
+ * @see <a href="http://robolectric.org">Robolectric</a>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class SwitchBenchmarkTest {
+
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+
+    /**
+     * 允许超出基线的比例
+     */
+    private static final double ALLOC_TOLERANCE = 1.1;
+
+    /**
+     * 允许超出基线的固定字节数,吸收测量噪声
+     */
+    private static final double ALLOC_SLACK = 16;
+
+    /**
+     * 不允许分配的用例后缀
+     */
+    private static final String ZERO_ALLOC_SUFFIX = ".draw";
+
+    /**
+     * 不允许分配的用例容忍的测量噪声,每次操作的字节数
+     */
+    private static final double ZERO_ALLOC_NOISE = 1;
+
+    private static final int WIDTH_SPEC = View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.AT_MOST);
+    private static final int HEIGHT_SPEC = View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.AT_MOST);
+
+    private static Properties baseline;
+    private static Properties results;
+
+    @BeforeClass
+    public static void loadBaseline() throws IOException {
+        assumeFalse("run with testReleaseUnitTest, tracing is on in debug", BuildConfig.SWITCH_TRACE);
+        baseline = load(System.getProperty("switchBenchmark.baseline"));
+        results = new Properties();
+    }
+
+    @AfterClass
+    public static void saveResults() throws IOException {
+        if (results == null) {
+            //跳过时没有结果,不能覆盖基线
+            return;
+        }
+        store(results, System.getProperty("switchBenchmark.report"));
+        if (Boolean.parseBoolean(System.getProperty("switchBenchmark.updateBaseline"))) {
+            Properties updated = new Properties();
+            for (String name : results.stringPropertyNames()) {
+                if (name.endsWith(".allocBytesPerOp")) {
+                    updated.setProperty(name, results.getProperty(name));
+                }
+            }
+            store(updated, System.getProperty("switchBenchmark.baseline"));
+        }
+    }
+
+    @Test
+    public void switchView() {
+        benchmarkAll("SwitchView", new SwitchView(context()));
+    }
+
+    @Test
+    public void gradientSwitchView() {
+        benchmarkAll("GradientSwitchView", new GradientSwitchView(context()));
+    }
+
+    @Test
+    public void switchButton() {
+        SwitchButton switchButton = new SwitchButton(context());
+        switchButton.setSwitchOnButtonResource(R.drawable.switch_on);
+        switchButton.setSwitchOffButtonResource(R.drawable.switch_off);
+        layout(switchButton);
+        //皮肤图集默认在后台生成,这里同步生成后重新加载,保证测的是贴图而不是占位按钮
+        int thumbSize = 2 * switchButton.renderer.getThumbRadius();
+        SwitchBitmapCache.getInstance(context()).getSkinAtlas(context().getResources(),
+                R.drawable.switch_on, R.drawable.switch_off, thumbSize);
+        switchButton.setSwitchOnButtonResource(R.drawable.switch_on);
+        assertNotNull(((BitmapThumbPainter) switchButton.renderer.getThumbPainter()).getSkinAtlas());
+        benchmarkAll("SwitchButton", switchButton);
+    }
+
+    private static void layout(View view) {
+        view.measure(WIDTH_SPEC, HEIGHT_SPEC);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    private void benchmarkAll(String name, final BaseSwitchView view) {
+        layout(view);
+
+        benchmark(name + ".measure", new Runnable() {
+            @Override
+            public void run() {
+                view.measure(WIDTH_SPEC, HEIGHT_SPEC);
+            }
+        });
+
+        final Canvas canvas = new NoOpCanvas(view.getMeasuredWidth(), view.getMeasuredHeight());
+        final float[] rates = new float[]{0f, 0.25f, 0.5f, 0.75f, 1f};
+        benchmark(name + ".draw", new Runnable() {
+            int frame;
+
+            @Override
+            public void run() {
+                //模拟动画帧:更新移动比例后重绘
+                view.stateMachine.onAnimationUpdate(0, rates[frame % rates.length]);
+                view.onDraw(canvas);
+                frame++;
+            }
+        });
+
+        final MotionEvent[] drag = createDrag(view.getMeasuredWidth(), view.getMeasuredHeight());
+        benchmark(name + ".drag", new Runnable() {
+            @Override
+            public void run() {
+                for (MotionEvent event : drag) {
+                    view.onTouchEvent(event);
+                }
+            }
+        });
+    }
+
+    /**
+     * 从左到右拖过整个开关的事件序列
+     */
+    private static MotionEvent[] createDrag(int width, int height) {
+        long downTime = SystemClock.uptimeMillis();
+        float y = height / 2f;
+        MotionEvent[] events = new MotionEvent[12];
+        events[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, 0, y, 0);
+        for (int i = 1; i <= 10; i++) {
+            events[i] = MotionEvent.obtain(downTime, downTime + i * 8, MotionEvent.ACTION_MOVE, width * i / 10f, y, 0);
+        }
+        events[11] = MotionEvent.obtain(downTime, downTime + 88, MotionEvent.ACTION_UP, width, y, 0);
+        return events;
+    }
+
+    private static void benchmark(String name, Runnable op) {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run();
+        }
+        long startAlloc = allocatedBytes();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            op.run();
+        }
+        long nsPerOp = (System.nanoTime() - startTime) / ITERATIONS;
+        double allocPerOp = (allocatedBytes() - startAlloc) / (double) ITERATIONS;
+        System.out.println(String.format(Locale.US, "%-28s %8d ns/op %10.1f B/op", name, nsPerOp, allocPerOp));
+        results.setProperty(name + ".nsPerOp", String.valueOf(nsPerOp));
+        //基线按US格式写入,逗号小数点的系统上也能用parseDouble读回
+        results.setProperty(name + ".allocBytesPerOp", String.format(Locale.US, "%.1f", allocPerOp));
+
+        if (name.endsWith(ZERO_ALLOC_SUFFIX)) {
+            assertTrue(name + " allocates " + allocPerOp + " B/op, draw must not allocate",
+                    allocPerOp < ZERO_ALLOC_NOISE);
+        }
+
+        String limit = baseline.getProperty(name + ".allocBytesPerOp");
+        if (limit != null && !Boolean.parseBoolean(System.getProperty("switchBenchmark.updateBaseline"))) {
+            double max = Double.parseDouble(limit) * ALLOC_TOLERANCE + ALLOC_SLACK;
+            assertTrue(name + " allocates " + allocPerOp + " B/op, baseline " + limit, allocPerOp <= max);
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static Context context() {
+        return RuntimeEnvironment.application;
+    }
+
+    private static Properties load(String path) throws IOException {
+        Properties properties = new Properties();
+        if (path != null && new File(path).exists()) {
+            InputStream in = new FileInputStream(path);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        }
+        return properties;
+    }
+
+    private static void store(Properties properties, String path) throws IOException {
+        if (path == null) {
+            return;
+        }
+        File file = new File(path);
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, "switch benchmark");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 不做光栅化的画布,只测开关自身绘制代码的开销
+     */
+    private static final class NoOpCanvas extends Canvas {
+
+        NoOpCanvas(int width, int height) {
+            super(Bitmap.createBitmap(Math.max(1, width), Math.max(1, height), Bitmap.Config.ARGB_8888));
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.parker.uipractice;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 三种插值方式的渐变表:两端颜色、预乘透明度和OKLab亮度单调
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class SwitchColorTableTest {
+
+    private static final int OFF_COLOR = 0xFFC9C9C9;
+    private static final int ON_COLOR = 0xFF32C781;
+
+    private static final int[] INTERPOLATIONS = {
+            SwitchColorTable.INTERPOLATION_LINEAR,
+            SwitchColorTable.INTERPOLATION_GAMMA,
+            SwitchColorTable.INTERPOLATION_OKLAB,
+    };
+
+    /**
+     * 相邻两级的亮度允许反向的幅度,吸收8位量化误差
+     */
+    private static final float LIGHTNESS_TOLERANCE = 0.005f;
+
+    @Test
+    public void endpointsAreExact() {
+        for (int interpolation : INTERPOLATIONS) {
+            SwitchColorTable table = SwitchColorTable.obtain(OFF_COLOR, ON_COLOR, interpolation);
+            assertEquals(OFF_COLOR, table.getColor(0));
+            assertEquals(ON_COLOR, table.getColor(1));
+            //超出范围的比例取两端
+            assertEquals(OFF_COLOR, table.getColor(-0.5f));
+            assertEquals(ON_COLOR, table.getColor(1.5f));
+        }
+    }
+
+    @Test
+    public void keepsPremultipliedAlpha() {
+        //从全透明渐变时只变透明度,颜色不会混入黑色
+        for (int interpolation : INTERPOLATIONS) {
+            SwitchColorTable table = SwitchColorTable.obtain(0x00000000, ON_COLOR, interpolation);
+            int lastAlpha = 0;
+            for (int i = 1; i <= 255; i++) {
+                int color = table.getColor(i / 255f);
+                int alpha = color >>> 24;
+                assertTrue(alpha >= lastAlpha);
+                lastAlpha = alpha;
+                assertChannel(ON_COLOR >> 16, color >> 16);
+                assertChannel(ON_COLOR >> 8, color >> 8);
+                assertChannel(ON_COLOR, color);
+            }
+            assertEquals(255, lastAlpha);
+        }
+    }
+
+    @Test
+    public void oklabLightnessIsMonotonic() {
+        assertMonotonicLightness(0xFF000000, 0xFFFFFFFF);
+        assertMonotonicLightness(OFF_COLOR, ON_COLOR);
+        assertMonotonicLightness(ON_COLOR, OFF_COLOR);
+        assertMonotonicLightness(0xFF3F51B5, 0xFFFFEB3B);
+    }
+
+    @Test
+    public void sharesTables() {
+        SwitchColorTable table = SwitchColorTable.obtain(OFF_COLOR, ON_COLOR, SwitchColorTable.INTERPOLATION_OKLAB);
+        assertTrue(table == SwitchColorTable.obtain(OFF_COLOR, ON_COLOR, SwitchColorTable.INTERPOLATION_OKLAB));
+    }
+
+    private static void assertMonotonicLightness(int offColor, int onColor) {
+        SwitchColorTable table = SwitchColorTable.obtain(offColor, onColor, SwitchColorTable.INTERPOLATION_OKLAB);
+        float sign = Math.signum(lightness(onColor) - lightness(offColor));
+        float last = lightness(table.getColor(0));
+        for (int i = 1; i <= 255; i++) {
+            float current = lightness(table.getColor(i / 255f));
+            assertTrue("step " + i + " reverses lightness", (current - last) * sign >= -LIGHTNESS_TOLERANCE);
+            last = current;
+        }
+    }
+
+    private static void assertChannel(int expected, int actual) {
+        assertTrue(Math.abs((expected & 0xFF) - (actual & 0xFF)) <= 1);
+    }
+
+    /**
+     * OKLab亮度L
+     */
+    private static float lightness(int color) {
+        float r = toLinear((color >> 16) & 0xFF);
+        float g = toLinear((color >> 8) & 0xFF);
+        float b = toLinear(color & 0xFF);
+        float l = (float) Math.cbrt(0.4122214708f * r + 0.5363325363f * g + 0.0514459929f * b);
+        float m = (float) Math.cbrt(0.2119034982f * r + 0.6806995451f * g + 0.1073969566f * b);
+        float s = (float) Math.cbrt(0.0883024619f * r + 0.2817188376f * g + 0.6299787005f * b);
+        return 0.2104542553f * l + 0.7936177850f * m - 0.0040720468f * s;
+    }
+
+    private static float toLinear(int channel) {
+        float c = channel / 255f;
+        return c <= 0.04045f ? c / 12.92f : (float) Math.pow((c + 0.055f) / 1.055f, 2.4f);
+    }
+}
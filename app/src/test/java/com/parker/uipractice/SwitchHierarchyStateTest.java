@@ -0,0 +1,80 @@
+package com.parker.uipractice;
+
+import android.os.Parcel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 开关状态按64位一组写入Parcel再读回
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class SwitchHierarchyStateTest {
+
+    @Test
+    public void roundTripBits() {
+        BitSet bits = new BitSet();
+        bits.set(1);
+        bits.set(63);
+        bits.set(100);
+        assertEquals(bits, roundTrip(bits));
+    }
+
+    @Test
+    public void roundTripHighestBitOnWordBoundary() {
+        //最高位正好是64的倍数,需要多写一个只有最低位的字
+        BitSet bits = new BitSet();
+        bits.set(0);
+        bits.set(64);
+        assertEquals(bits, roundTrip(bits));
+
+        BitSet single = new BitSet();
+        single.set(128);
+        assertEquals(single, roundTrip(single));
+    }
+
+    @Test
+    public void roundTripEmpty() {
+        assertEquals(new BitSet(), roundTrip(new BitSet()));
+    }
+
+    @Test
+    public void roundTripSequence() {
+        //多个BitSet连续写入,读回时不能错位
+        BitSet first = new BitSet();
+        first.set(64);
+        BitSet empty = new BitSet();
+        BitSet last = new BitSet();
+        last.set(5);
+        Parcel parcel = Parcel.obtain();
+        try {
+            SwitchHierarchyState.writeBitSet(parcel, first);
+            SwitchHierarchyState.writeBitSet(parcel, empty);
+            SwitchHierarchyState.writeBitSet(parcel, last);
+            parcel.setDataPosition(0);
+            assertEquals(first, SwitchHierarchyState.readBitSet(parcel));
+            assertEquals(empty, SwitchHierarchyState.readBitSet(parcel));
+            assertEquals(last, SwitchHierarchyState.readBitSet(parcel));
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static BitSet roundTrip(BitSet bits) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            SwitchHierarchyState.writeBitSet(parcel, bits);
+            parcel.setDataPosition(0);
+            return SwitchHierarchyState.readBitSet(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.parker.uipractice;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 开关状态日志的写入、压缩、重新打开和尾部损坏恢复
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class SwitchStateStoreTest {
+
+    private static final String NAME = "switch_state_test";
+
+    /**
+     * 与日志格式一致:文件头长度和定义key、状态记录的操作码
+     */
+    private static final int HEADER_SIZE = 8;
+    private static final byte OP_KEY = 1;
+    private static final byte OP_ON = 2;
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(context().getFilesDir(), NAME);
+        file.delete();
+    }
+
+    @Test
+    public void putCompactReopen() throws IOException {
+        int keyCount = 100;
+        BitSet expected = new BitSet();
+        SwitchStateStore store = SwitchStateStore.open(context(), NAME);
+        for (int i = 0; i < 200000; i++) {
+            int key = i % keyCount;
+            boolean switchStatus = (i / keyCount) % 2 == 0;
+            store.put("switch" + key, switchStatus);
+            expected.set(key, switchStatus);
+            if (i % 25000 == 24999) {
+                store.flush();
+            }
+        }
+        store.flush();
+        assertNull(store.getError());
+        //20万条状态记录约1MB,压缩后只剩每个key一条
+        assertTrue("journal not compacted: " + file.length(), file.length() <= 64 * 1024);
+        store.close();
+
+        store = SwitchStateStore.open(context(), NAME);
+        for (int key = 0; key < keyCount; key++) {
+            assertEquals(expected.get(key), store.get("switch" + key, !expected.get(key)));
+        }
+        assertTrue(store.get("missing", true));
+        store.close();
+    }
+
+    @Test
+    public void recoverFromTornTail() throws IOException {
+        SwitchStateStore store = SwitchStateStore.open(context(), NAME);
+        store.put("a", true);
+        store.put("b", true);
+        store.put("b", false);
+        store.close();
+
+        //头部之后:定义a(4)、a开(5)、定义b(4)、b开(5)、b关(5)
+        int end = HEADER_SIZE + 4 + 5 + 4 + 5 + 5;
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            //只写了操作码的key定义,长度超出文件
+            out.seek(end);
+            out.writeByte(OP_KEY);
+            out.writeShort(0xFFFF);
+        } finally {
+            out.close();
+        }
+
+        store = SwitchStateStore.open(context(), NAME);
+        assertTrue(store.get("a", false));
+        assertFalse(store.get("b", true));
+        store.put("c", true);
+        store.close();
+
+        out = new RandomAccessFile(file, "rw");
+        try {
+            //压缩后:定义a、b、c,再各一条状态;之后写一条序号越界的状态
+            end = HEADER_SIZE + 3 * 4 + 3 * 5;
+            out.seek(end);
+            out.writeByte(OP_ON);
+            out.writeInt(99);
+        } finally {
+            out.close();
+        }
+
+        store = SwitchStateStore.open(context(), NAME);
+        assertTrue(store.get("a", false));
+        assertFalse(store.get("b", true));
+        assertTrue(store.get("c", false));
+        assertNull(store.getError());
+        store.close();
+    }
+
+    private static Context context() {
+        return RuntimeEnvironment.application;
+    }
+}